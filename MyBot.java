@@ -1,17 +1,61 @@
 import hlt.*;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
 
 public class MyBot {
 
-    private final static boolean DEBUG_LOGGING = true;
+    // Log level used unless one is given as the first argument or the "hlt.log.level" system property.
+    private final static Log.Level DEFAULT_LOG_LEVEL = Log.Level.DEBUG;
 
-    private static HaliteGameInstance gameInstance;
+    private final static double MIN_ATTACK_RANGE = 4.0d;
+
+    // Decide ship moves on all cores; moves are merged in ship id order, so the output is the same either way.
+    private final static boolean PARALLEL_DECISIONS = true;
+
+    private final static int DECIDE_TIMER = Instrumentation.timer("decide moves");
+    private final static int SHIP_MOVE_INIT_TIMER = Instrumentation.timer("ship move initialize");
+
+    // Give ships their targets in one global assignment per turn, instead of each taking its nearest acceptable planet.
+    private final static boolean GLOBAL_ASSIGNMENT = true;
+
+    private final static int ASSIGNMENT_TIMER = Instrumentation.timer("target assignment");
+    private final static int COMBAT_FORECAST_TIMER = Instrumentation.timer("combat forecast");
+    private final static int INFLUENCE_MAP_TIMER = Instrumentation.timer("influence map");
+
+    // Navigation depth of the first, cheap pass that gives every ship a move before any refinement.
+    private final static int FALLBACK_NAVIGATION_CORRECTIONS = 10;
+
+    // Names of the strategy parameters that can be overridden per game, e.g. by hlt.Tournament.
+    public final static String MIN_PLANETS_OWNED_THRESHOLD = "MIN_PLANETS_OWNED_THRESHOLD";
+    public final static String MAX_PLANET_DOCK_PERCENTAGE = "MAX_PLANET_DOCK_PERCENTAGE";
+    public final static String MAX_ATTACK_DOCKED_SHIP_RANGE = "MAX_ATTACK_DOCKED_SHIP_RANGE";
 
     public static void main(final String[] args) {
 
-        final Networking networking = new Networking();
-        final GameMap gameMap = networking.initialize("Tamagocchi");
+        Log.setLevel(Log.Level.parse(args.length > 0 ? args[0] : System.getProperty("hlt.log.level"), DEFAULT_LOG_LEVEL));
+
+        play(new Networking());
+    }
+
+    /**
+     * Plays one game over connection until it is over. Game state is per connection, so games on different
+     * connections may run at the same time; but {@link Log}, {@link Trace} and {@link Instrumentation} are static,
+     * so the log, trace and {@code -Dhlt.instrument} counters of games run together in one process are mixed.
+     */
+    public static void play(final GameConnection connection) {
+        play(connection, new Properties());
+    }
+
+    /**
+     * Plays one game with the given strategy parameters; see {@link HaliteGameInstance} for names and defaults.
+     */
+    public static void play(final GameConnection connection, final Properties parameters) {
+
+        final GameMap gameMap = connection.initialize("Tamagocchi");
+        gameMap.setIncrementalUpdates(true); // Keep Ship/Planet objects across turns.
 
         // We now have 1 full minute to analyse the initial map.
         final String initialMapIntelligence =
@@ -20,69 +64,137 @@ public class MyBot {
                 "; players: " + gameMap.getAllPlayers().size() +
                 "; planets: " + gameMap.getAllPlanets().size();
 
-        logDebug(initialMapIntelligence);
+        logDebug(() -> initialMapIntelligence);
 
         final ArrayList<Move> moveList = new ArrayList<>();
-
-        gameInstance = new HaliteGameInstance(gameMap.getMyPlayerId());
+        final MyBot bot = new MyBot(gameMap, connection.getTurnBudget(), parameters);
+        logDebug(() -> bot.gameInstance.planetGeometry.toString());
 
         for (;;) {
             moveList.clear();
-            networking.updateMap(gameMap);
-            gameInstance.synchronize(gameMap);
+            if (!connection.updateMap(gameMap)) {
+                return;
+            }
+            bot.playTurn(moveList);
+            connection.sendMoves(moveList);
+        }
+    }
 
-            logDebug(gameInstance.echoStatistics());
+    private final GameMap gameMap;
+    private final TurnBudget turnBudget;
+    private final HaliteGameInstance gameInstance;
+    private final DecisionPass decisionPass;
+
+    /**
+     * Per-game bot state. Outside of {@link #play(GameConnection)}, this lets benchmarks and harnesses drive turns on
+     * a map they update themselves.
+     */
+    public MyBot(final GameMap gameMap, final TurnBudget turnBudget) {
+        this(gameMap, turnBudget, new Properties());
+    }
 
-            for (final Ship ship : gameMap.getMyPlayer().getShips().values()) {
+    public MyBot(final GameMap gameMap, final TurnBudget turnBudget, final Properties parameters) {
+        this.gameMap = gameMap;
+        this.turnBudget = turnBudget;
+        this.gameInstance = new HaliteGameInstance(gameMap.getMyPlayerId(), parameters);
+        // Pre-game analysis: planets never move, so their geometry is worked out once here.
+        gameInstance.planetGeometry = new PlanetGeometry(gameMap.getAllPlanets().values());
+        gameInstance.influenceMap = new InfluenceMap(gameMap.getWidth(), gameMap.getHeight());
+        this.decisionPass = new DecisionPass(gameInstance, gameMap, turnBudget);
+    }
 
-                logDebug("++++ Iterating on SHIP [" + ship.getId() + "]");
+    /**
+     * Decides this turn's moves on the freshly updated map and appends them to moveList.
+     */
+    public void playTurn(final List<Move> moveList) {
+        gameInstance.synchronize(gameMap);
 
-                // START - construct a HaliteShipMoveInstance object; find and group all nearby objects. Double (key) = distance to, Entity = nearby entity
-                HaliteShipMoveInstance shipMoveInstance = new HaliteShipMoveInstance();
-                shipMoveInstance.initialize(gameMap, ship, gameInstance.myPlayerId);
+        logDebug(() -> gameInstance.echoStatistics());
 
-                // logMapData(shipMoveInstance.myNearbyShips, shipMoveInstance.nearbyEnemyShips, shipMoveInstance.nearbyOwnedPlanets);
+        final long decideStart = Instrumentation.start();
+        decisionPass.beginTurn(gameMap.getMyPlayer().getShips().values());
 
-                // Direective #0 - Determine ship docking status.
-                if (ship.getDockingStatus() != Ship.DockingStatus.Undocked) {
-                    // TODO Rules for when to undock?
-                    logDebug("Ship " + ship.getId() + " is DOCKED, iterating to next ship.");
-                    continue;
-                } else {
-                    logDebug("Ship " + ship.getId() + " is not docked (" + ship.getDockingStatus() + "), continuing!");
-                }
+        final long forecastStart = Instrumentation.start();
+        gameInstance.combatForecast.update(gameMap);
+        Instrumentation.stop(COMBAT_FORECAST_TIMER, forecastStart);
 
-                // Directive #1 - Conditionally thrust toward nearby planets.
-                Move thrustMove = conditionallyThrustTowardPlanet(gameInstance, shipMoveInstance, gameMap, ship);
-                if (thrustMove != null) {
-                    moveList.add(thrustMove);
-                    logDebug("Ship " + ship.getId() + " thrust toward planet or other target has been issued.");
-                    continue; // Next ship in armada
-                } else {
-                    logDebug("No ship commands issued, searching for enemy ships.");
-                }
+        final long influenceStart = Instrumentation.start();
+        gameInstance.influenceMap.update(gameMap);
+        Instrumentation.stop(INFLUENCE_MAP_TIMER, influenceStart);
 
-                // Directive #2 - Search out enemy ships.
-                Move enemyShipMove = thrustTowardEnemyShips(gameInstance, shipMoveInstance, gameMap, ship);
-                if (enemyShipMove != null) {
-                    moveList.add(enemyShipMove);
-                    logDebug("Ship " + ship.getId() + " thrust toward enemy ship move has been issued.");
-                    continue; // Next ship in armada
-                } else {
-                    logDebug("No ship commands issued, searching for enemy ships.");
-                }
+        if (GLOBAL_ASSIGNMENT) {
+            final long assignmentStart = Instrumentation.start();
+            gameInstance.targetAssignment.assign(gameInstance, gameMap, turnBudget);
+            Instrumentation.stop(ASSIGNMENT_TIMER, assignmentStart);
+            logDebug(() -> gameInstance.targetAssignment.toString());
+        }
 
-                shipMoveInstance.destroy();
-            }
+        // Pass 1 - a cheap move for every ship, so there is always something to send.
+        decisionPass.run(FALLBACK_NAVIGATION_CORRECTIONS, false);
+
+        // Pass 2 - while time remains, redo the ships whose cheap navigation search was cut short.
+        decisionPass.run(Constants.MAX_NAVIGATION_CORRECTIONS, true);
+        if (turnBudget.isExpired()) {
+            logDebug(() -> "Turn budget exhausted, sending best moves found so far.");
+        }
+
+        final int replanned = decisionPass.commitMoves(moveList);
+        logDebug(() -> "Moves planned again around reserved paths: " + replanned);
+        Instrumentation.stop(DECIDE_TIMER, decideStart);
+    }
+
+    /**
+     * Decides the move of one ship. Only reads shared state, so it may run for several ships at once
+     * as long as each thread has its own HaliteShipMoveInstance.
+     */
+    static Move decideShipMove(HaliteGameInstance gameInstance, HaliteShipMoveInstance shipMoveInstance, GameMap gameMap, Ship ship) {
+
+        // Cleared before anything can return, so a docked ship never inherits the previous ship's flag.
+        shipMoveInstance.navigationTruncated = false;
+
+        logDebug(() -> "++++ Iterating on SHIP [" + ship.getId() + "]");
+
+        // Direective #0 - Determine ship docking status.
+        if (ship.getDockingStatus() != Ship.DockingStatus.Undocked) {
+            // TODO Rules for when to undock?
+            logDebug(() -> "Ship " + ship.getId() + " is DOCKED, iterating to next ship.");
+            return null;
+        } else {
+            logDebug(() -> "Ship " + ship.getId() + " is not docked (" + ship.getDockingStatus() + "), continuing!");
+        }
 
-            Networking.sendMoves(moveList);
+        // Find the nearby planets and enemy ships this ship may target, nearest first.
+        final long initializeStart = Instrumentation.start();
+        shipMoveInstance.initialize(gameMap, ship, gameInstance.MAX_ATTACK_DOCKED_SHIP_RANGE);
+        Instrumentation.stop(SHIP_MOVE_INIT_TIMER, initializeStart);
+
+        // Directive #1 - Thrust toward the assigned target, or conditionally toward nearby planets.
+        Move thrustMove = GLOBAL_ASSIGNMENT
+                ? thrustTowardAssignedTarget(gameInstance, shipMoveInstance, gameMap, ship)
+                : conditionallyThrustTowardPlanet(gameInstance, shipMoveInstance, gameMap, ship);
+        if (thrustMove != null) {
+            logDebug(() -> "Ship " + ship.getId() + " thrust toward planet or other target has been issued.");
+            return thrustMove; // Next ship in armada
+        } else {
+            logDebug(() -> "No ship commands issued, searching for enemy ships.");
+        }
+
+        // Directive #2 - Search out enemy ships.
+        Move enemyShipMove = thrustTowardEnemyShips(gameInstance, shipMoveInstance, gameMap, ship);
+        if (enemyShipMove != null) {
+            logDebug(() -> "Ship " + ship.getId() + " thrust toward enemy ship move has been issued.");
+            return enemyShipMove; // Next ship in armada
+        } else {
+            logDebug(() -> "No ship commands issued, searching for enemy ships.");
         }
+
+        return null;
     }
 
     static Move conditionallyThrustTowardPlanet(HaliteGameInstance gameInstance, HaliteShipMoveInstance shipMoveInstance, GameMap gameMap, Ship ship) {
 
         if (gameInstance.percentageOfPlanetsOwned >= gameInstance.MIN_PLANETS_OWNED_THRESHOLD) {
-            logDebug("Bypassing thrust toward any planets as % owned threshold of [" + gameInstance.percentageOfPlanetsOwned +
+            logDebug(() -> "Bypassing thrust toward any planets as % owned threshold of [" + gameInstance.percentageOfPlanetsOwned +
                     "] is >= [" + gameInstance.MIN_PLANETS_OWNED_THRESHOLD + "]");
             return null;
         }
@@ -90,9 +202,9 @@ public class MyBot {
         // TODO Intelligently order nearby planets.
         // List<Planet> nearbyUnownedPlanetsByRadius = reorderNearbyPlanetsByRadius(shipMoveInstance.nearbyPlanets);
 
-        for (Map.Entry<Double,Planet> nearbyPlanetEntry : shipMoveInstance.nearbyPlanets.entrySet()) {
+        for (int i = 0; i < shipMoveInstance.nearbyPlanets.size(); ++i) {
 
-            Planet planet = nearbyPlanetEntry.getValue();
+            Planet planet = shipMoveInstance.nearbyPlanets.getPlanet(i);
 
             // If the planet is owned by me, and it is a preferred large planet, proceed/dock.
             if (planet.isOwned()) {
@@ -107,14 +219,13 @@ public class MyBot {
                     for (Integer enemyShipId : dockedEnemyShips) {
                         Ship dockedEnemyShip = gameMap.getShip(planet.getOwner(), enemyShipId);
                         Position dockedEnemyShipPosition = new Position(dockedEnemyShip.getXPos(), dockedEnemyShip.getYPos());
-                        Position myPosition = new Position(ship.getXPos(), ship.getYPos());
-                        Double distanceToDockedEnemyShip = myPosition.getDistanceTo(dockedEnemyShipPosition);
-                        ThrustMove thrustMove = thrustWithShipTowardTargetPosition(ship, dockedEnemyShipPosition, distanceToDockedEnemyShip, gameMap);
+                        Double distanceToDockedEnemyShip = gameMap.getDistanceCache().getDistance(ship, dockedEnemyShip);
+                        ThrustMove thrustMove = thrustWithShipTowardTargetPosition(gameInstance, shipMoveInstance, ship, dockedEnemyShipPosition, distanceToDockedEnemyShip, gameMap);
                         if (thrustMove != null) {
-                            logDebug("Ship [" + ship.getId() + "] found enemy ship [" + dockedEnemyShip.getId() + "] docked on nearby planet [" + planet.getId() + "], engaging!");
+                            logDebug(() -> "Ship [" + ship.getId() + "] found enemy ship [" + dockedEnemyShip.getId() + "] docked on nearby planet [" + planet.getId() + "], engaging!");
                             return thrustMove;
                         } else {
-                            logDebug("Could not thrust toward nearby docked enemy ship [" + dockedEnemyShip.getId() + "] for some damn reason!");
+                            logDebug(() -> "Could not thrust toward nearby docked enemy ship [" + dockedEnemyShip.getId() + "] for some damn reason!");
                         }
                     }
 
@@ -122,15 +233,18 @@ public class MyBot {
             } // Unowned, continue.
 
             if (ship.canDock(planet)) {
-                logDebug("Ship " + ship.getId() + "/" + ship.getOwner() + " DOCKING on unowned Planet " + planet.toString());
+                logDebug(() -> "Ship " + ship.getId() + "/" + ship.getOwner() + " DOCKING on unowned Planet " + planet.toString());
                 return new DockMove(ship, planet);
             }
 
-            final ThrustMove newThrustMove = Navigation.navigateShipToDock(gameMap, ship, planet, Constants.MAX_SPEED);
+            final ThrustMove newThrustMove = Navigation.navigateShipToApproachPoint(gameMap, ship, planet,
+                    gameInstance.planetGeometry.getApproachPoint(planet, ship), Constants.MAX_SPEED,
+                    shipMoveInstance.navigationCorrections);
             if (newThrustMove != null) {
-                logDebug("Ship " + ship.getId() + "/" + ship.getOwner() + " THRUSTING for Planet " + planet.toString());
+                logDebug(() -> "Ship " + ship.getId() + "/" + ship.getOwner() + " THRUSTING for Planet " + planet.toString());
                 return newThrustMove;
             }
+            shipMoveInstance.noteNavigationFailure();
 
             break;
         }
@@ -138,35 +252,84 @@ public class MyBot {
         return null;
     }
 
-    static Move thrustTowardEnemyShips(HaliteGameInstance gameInstance, HaliteShipMoveInstance shipMoveInstance, GameMap gameMap, Ship ship) {
+    static Move thrustTowardAssignedTarget(HaliteGameInstance gameInstance, HaliteShipMoveInstance shipMoveInstance, GameMap gameMap, Ship ship) {
 
-        final double MIN_ATTACK_RANGE = 4.0d;
+        final Entity target = gameInstance.targetAssignment.getTarget(ship);
+        if (target == null) {
+            return null;
+        }
 
-        /*logDebug("Calculated max attack dock ship range at " + MAX_ATTACK_DOCKED_SHIP_RANGE +
+        if (target instanceof Planet) {
+            final Planet planet = (Planet) target;
+            // A docked ship cannot fire; where the enemy can bring more guns next turn than we can, fight first.
+            if (ship.canDock(planet) && isOutgunned(gameInstance, ship)) {
+                logDebug(() -> "Ship " + ship.getId() + " not docking on Planet " + planet.getId() + " under threat.");
+                return null;
+            }
+            if (ship.canDock(planet)) {
+                logDebug(() -> "Ship " + ship.getId() + "/" + ship.getOwner() + " DOCKING on assigned Planet " + planet.toString());
+                return new DockMove(ship, planet);
+            }
+
+            final ThrustMove newThrustMove = Navigation.navigateShipToApproachPoint(gameMap, ship, planet,
+                    gameInstance.planetGeometry.getApproachPoint(planet, ship), Constants.MAX_SPEED,
+                    shipMoveInstance.navigationCorrections);
+            if (newThrustMove == null) {
+                shipMoveInstance.noteNavigationFailure();
+            }
+            return newThrustMove;
+        }
+
+        final Ship enemyShip = (Ship) target;
+        return thrustWithShipTowardTargetPosition(gameInstance, shipMoveInstance, ship,
+                new Position(enemyShip.getXPos(), enemyShip.getYPos()),
+                gameMap.getDistanceCache().getDistance(ship, enemyShip), gameMap);
+    }
+
+    /**
+     * @return whether enemy ships could bring more damage to the position next turn than ours, by the influence map
+     */
+    static boolean isOutgunned(HaliteGameInstance gameInstance, Position position) {
+        final double x = position.getXPos();
+        final double y = position.getYPos();
+        return gameInstance.influenceMap.sample(InfluenceMap.Layer.THREAT, x, y)
+                > gameInstance.influenceMap.sample(InfluenceMap.Layer.STRENGTH, x, y);
+    }
+
+    static Move thrustTowardEnemyShips(HaliteGameInstance gameInstance, HaliteShipMoveInstance shipMoveInstance, GameMap gameMap, Ship ship) {
+
+        /*logDebug(() -> "Calculated max attack dock ship range at " + MAX_ATTACK_DOCKED_SHIP_RANGE +
             " from map height of " + gameMap.getHeight() + " and map width of " + gameMap.getWidth());*/
 
         // Attack docked ships first.
-        for (Map.Entry<Double,Ship> nearbyDockedEnemyShipEntry : shipMoveInstance.dockedEnemyShips.entrySet()) {
+        for (int i = 0; i < shipMoveInstance.dockedEnemyShips.size(); ++i) {
 
-            Ship dockedEnemyShip = nearbyDockedEnemyShipEntry.getValue();
-            double dockedEnemyShipDistance = nearbyDockedEnemyShipEntry.getKey();
+            Ship dockedEnemyShip = shipMoveInstance.dockedEnemyShips.getShip(i);
+            double dockedEnemyShipDistance = shipMoveInstance.dockedEnemyShips.getDistance(i);
             Position dockedEnemyShipPosition = new Position(dockedEnemyShip.getXPos(), dockedEnemyShip.getYPos());
 
-            ThrustMove thrustMove = thrustWithShipTowardTargetPosition(ship, dockedEnemyShipPosition, dockedEnemyShipDistance, gameMap);
+            ThrustMove thrustMove = thrustWithShipTowardTargetPosition(gameInstance, shipMoveInstance, ship, dockedEnemyShipPosition, dockedEnemyShipDistance, gameMap);
             if (thrustMove != null) {
                 return thrustMove;
             }
         }
 
         // If no docked ships are nearby, head for any available ship on the map.
-        for (Map.Entry<Double,Ship> nearbyEnemyShipEntry : shipMoveInstance.allEnemyShips.entrySet()) {
+        // Ships already within MIN_ATTACK_RANGE were left out of allEnemyShips: don't thrust toward a ship if we're already in attack range.
+        for (int i = 0; i < shipMoveInstance.allEnemyShips.size(); ++i) {
 
-            Ship enemyShip = nearbyEnemyShipEntry.getValue();
-            double enemyShipDistance = nearbyEnemyShipEntry.getKey();
+            Ship enemyShip = shipMoveInstance.allEnemyShips.getShip(i);
+            double enemyShipDistance = shipMoveInstance.allEnemyShips.getDistance(i);
 
-            if (enemyShipDistance <= MIN_ATTACK_RANGE) { continue; } // Don't thrust toward ship if we're already in attack range.
-            Position enemyShipPosition = new Position(enemyShip.getXPos(), enemyShip.getYPos());
-            ThrustMove thrustMove = thrustWithShipTowardTargetPosition(ship, enemyShipPosition, enemyShipDistance, gameMap);
+            // Don't feed ships one at a time into a fight the enemy is forecast to win.
+            if (gameInstance.combatForecast.getOutcome(enemyShip) == CombatForecast.Outcome.WINNING
+                    && gameInstance.combatForecast.getScore(enemyShip) >= Constants.WEAPON_DAMAGE) {
+                continue;
+            }
+
+            // Head for where the ship will be when we get there, not where it is now.
+            Position enemyShipPosition = gameMap.getShipHistory().getInterceptPoint(ship, enemyShip, Constants.MAX_SPEED);
+            ThrustMove thrustMove = thrustWithShipTowardTargetPosition(gameInstance, shipMoveInstance, ship, enemyShipPosition, enemyShipDistance, gameMap);
             if (thrustMove != null) {
                 return thrustMove;
             }
@@ -175,21 +338,22 @@ public class MyBot {
         return null;
     }
 
-    private static ThrustMove thrustWithShipTowardTargetPosition(Ship ship, Position targetPosition, Double targetDistance, GameMap gameMap) {
+    private static ThrustMove thrustWithShipTowardTargetPosition(HaliteGameInstance gameInstance, HaliteShipMoveInstance shipMoveInstance, Ship ship, Position targetPosition, Double targetDistance, GameMap gameMap) {
 
         // Do not thrust toward this ship if it's beyond the maximum attack range.
         if (targetDistance > gameInstance.MAX_ATTACK_DOCKED_SHIP_RANGE) { return null; }
 
         // Position targetPosition = new Position(ship.getXPos(), ship.getYPos());
 
-        final ThrustMove thrustTowardShipMove = Navigation.navigateShipTowardsTarget(
-                gameMap, ship, targetPosition, Constants.MAX_SPEED, true,
-                Constants.MAX_NAVIGATION_CORRECTIONS, Math.PI / 365.0);
+        final ThrustMove thrustTowardShipMove = Navigation.navigateShipAroundObstacles(
+                gameMap, ship, targetPosition, Constants.MAX_SPEED,
+                (shipMoveInstance.navigationCorrections - 1) * Math.PI / 365.0);
         if (thrustTowardShipMove != null) {
-            logDebug("Adding move to moveList: " + thrustTowardShipMove.toString());
+            logDebug(() -> "Adding move to moveList: " + thrustTowardShipMove.toString());
             return thrustTowardShipMove;
         } else {
-            logDebug("Could not thrust toward ship for some damn reason!");
+            shipMoveInstance.noteNavigationFailure();
+            logDebug(() -> "Could not thrust toward ship for some damn reason!");
         }
 
         return null;
@@ -214,27 +378,9 @@ public class MyBot {
     }
     */
 
-    private static void logMapData(Map<Double,Ship> myNearbyShips, Map<Double,Ship> enemyNearbyShips, Map<Double,Planet> nearbyOwnedPlanets) {
-
-        if (!DEBUG_LOGGING) { return; }
-
-        for (Map.Entry<Double,Ship> nearbyShipEntry : myNearbyShips.entrySet()) {
-            Log.log("My nearby ship, distance: " + nearbyShipEntry.getKey() + ", entity: " + nearbyShipEntry.getValue().toString());
-        }
-        for (Map.Entry<Double,Ship> nearbyShipEntry : enemyNearbyShips.entrySet()) {
-            Log.log("ENEMY nearby ship, distance: " + nearbyShipEntry.getKey() + ", entity: " + nearbyShipEntry.getValue().toString());
-        }
+    private static void logDebug(Supplier<String> statement) {
 
-        for (Map.Entry<Double,Planet> nearbyPlanetEntry : nearbyOwnedPlanets.entrySet()) {
-            Log.log("Nearby planets, distance: " + nearbyPlanetEntry.getKey() + ", entity: " + nearbyPlanetEntry.getValue().toString());
-        }
-    }
-
-    private static void logDebug(String statement) {
-
-        if (!DEBUG_LOGGING) { return; }
-
-        Log.log(statement);
+        Log.log(Log.Level.DEBUG, statement);
     }
 
     private static class HaliteGameInstance {
@@ -249,13 +395,22 @@ public class MyBot {
         int totalPlayerCount = 0;
 
         Map<Integer,Planet> myPlanets;
+        PlanetGeometry planetGeometry;
+        final TargetAssignment targetAssignment = new TargetAssignment();
+        final CombatForecast combatForecast = new CombatForecast();
+        InfluenceMap influenceMap;
         double percentageOfPlanetsOwned = 0.0d;
 
         double MAX_ATTACK_DOCKED_SHIP_RANGE = 0.0d; // Maximum travel distance allowed to attack a docked enemy ship
         double MIN_PLANETS_OWNED_THRESHOLD = 0.6d; // Minimum percent of planets owned before prioritizing ship attacks
         double MAX_PLANET_DOCK_PERCENTAGE = 0.75d; // Maximum percent of ships docked on a planet
+        double attackDockedShipRangeFraction = 0.5d; // MAX_ATTACK_DOCKED_SHIP_RANGE as a fraction of the map diagonal
 
-        HaliteGameInstance(int playerId) {
+        /**
+         * Parameters override the defaults below by name; MAX_ATTACK_DOCKED_SHIP_RANGE is given as a fraction of
+         * the map diagonal, since the range itself depends on the map.
+         */
+        HaliteGameInstance(int playerId, Properties parameters) {
             myPlayerId = playerId;
             myShipCount = 0;
             myPlanetCount = 0;
@@ -267,13 +422,21 @@ public class MyBot {
             myPlanets = new TreeMap<>();
 
             // Constants
-            MIN_PLANETS_OWNED_THRESHOLD = 0.6d;
+            MIN_PLANETS_OWNED_THRESHOLD = parameter(parameters, MyBot.MIN_PLANETS_OWNED_THRESHOLD, 0.6d);
             MAX_ATTACK_DOCKED_SHIP_RANGE = 0.0d;
-            MAX_PLANET_DOCK_PERCENTAGE = 0.6d;
+            attackDockedShipRangeFraction = parameter(parameters, MyBot.MAX_ATTACK_DOCKED_SHIP_RANGE, 0.5d);
+            MAX_PLANET_DOCK_PERCENTAGE = parameter(parameters, MyBot.MAX_PLANET_DOCK_PERCENTAGE, 0.6d);
+        }
+
+        static double parameter(Properties parameters, String name, double defaultValue) {
+            final String value = parameters.getProperty(name);
+            return value == null ? defaultValue : Double.parseDouble(value.trim());
         }
 
         void synchronize(GameMap gameMap) {
 
+            planetGeometry.removePlanets(gameMap.getDestroyedPlanets());
+
             myShipCount = gameMap.getMyPlayer().getShips().size();
             totalPlanetCount = gameMap.getAllPlanets().size();
             totalPlayerCount = gameMap.getAllPlayers().size();
@@ -299,7 +462,7 @@ public class MyBot {
                 percentageOfShipsOwned = 0.0d;
             }
 
-            MAX_ATTACK_DOCKED_SHIP_RANGE = 0.5d * getHypotenuse(gameMap.getHeight(), gameMap.getWidth());
+            MAX_ATTACK_DOCKED_SHIP_RANGE = attackDockedShipRangeFraction * getHypotenuse(gameMap.getHeight(), gameMap.getWidth());
         }
 
         double getHypotenuse(double height, double width) {
@@ -312,86 +475,304 @@ public class MyBot {
         }
     }
 
-    private static class HaliteShipMoveInstance {
+    /**
+     * Once per turn, gives each of our undocked ships at most one target: a free dock spot on a planet we may
+     * still dock on, or a docked enemy ship within attack range. Targets are assigned together by an auction that
+     * minimizes the total distance flown, so no more ships head for a planet than it has spots left, instead of
+     * every ship taking the nearest planet that still looks open.
+     */
+    private static class TargetAssignment {
+
+        // Ships sent after one docked enemy ship; more would only crowd around it.
+        static final int ATTACKERS_PER_DOCKED_SHIP = 2;
+
+        // Price step of the last auction round, in units of distance; earlier rounds start from a quarter of the diagonal.
+        static final double EPSILON = 0.1d;
+
+        final AuctionSolver solver = new AuctionSolver();
+        final List<Ship> bidders = new ArrayList<>();
+        // One entry per dock spot or attacker place, so a target appears once for each ship it can take.
+        final List<Entity> objects = new ArrayList<>();
+        final Map<Integer, Entity> targets = new HashMap<>();
+        double[] benefits = new double[0];
+        int assigned = 0;
+
+        void assign(HaliteGameInstance gameInstance, GameMap gameMap, TurnBudget turnBudget) {
+            bidders.clear();
+            objects.clear();
+            targets.clear();
+            assigned = 0;
+
+            for (Ship ship : gameMap.getMyPlayer().getShips().values()) {
+                if (ship.getDockingStatus() == Ship.DockingStatus.Undocked) {
+                    bidders.add(ship);
+                }
+            }
 
-        Map<Double,Ship> allMyShips;
-        Map<Double,Ship> myNearbyShips;
-
-        Map<Double,Ship> allEnemyShips;
-        Map<Double,Ship> nearbyEnemyShips;
-        Map<Double,Ship> undockedEnemyShips;
-        Map<Double,Ship> dockedEnemyShips;
-
-        Map<Double,Planet> nearbyPlanets;
-        Map<Double,Planet> nearbyOwnedPlanets;
-        Map<Double,Planet> nearbyUnownedPlanets;
-        Map<Double,Planet> nearbyEnemyOwnedPlanets;
-
-        HaliteShipMoveInstance() {
-            myNearbyShips = new TreeMap<>();
-            allEnemyShips = new TreeMap<>();
-            dockedEnemyShips = new TreeMap<>();
-            undockedEnemyShips = new TreeMap<>();
-            allMyShips = new TreeMap<>();
-            nearbyEnemyShips = new TreeMap<>();
-            nearbyPlanets = new TreeMap<>();
-            nearbyOwnedPlanets = new TreeMap<>();
-            nearbyUnownedPlanets = new TreeMap<>();
-            nearbyEnemyOwnedPlanets = new TreeMap<>();
-        }
-
-        void initialize(GameMap gameMap, Ship myShip, Integer myPlayerId) {
-
-            for (Map.Entry<Double,Entity> entry : gameMap.nearbyEntitiesByDistance(myShip).entrySet()) {
-                if (entry.getValue() instanceof Ship) {
-                    if (entry.getValue().equals(myShip)) { continue; } // Skip ship currently focused
-                    if (entry.getValue().getOwner() == myShip.getOwner()) {
-                        this.myNearbyShips.put(entry.getKey(), (Ship) entry.getValue());
-                    } else {
-                        nearbyEnemyShips.put(entry.getKey(), (Ship) entry.getValue());
+            if (gameInstance.percentageOfPlanetsOwned < gameInstance.MIN_PLANETS_OWNED_THRESHOLD) {
+                for (Planet planet : gameMap.getAllPlanets().values()) {
+                    final int spots = freeSpots(gameInstance, planet);
+                    for (int i = 0; i < spots; ++i) {
+                        objects.add(planet);
                     }
                 }
-                if (entry.getValue() instanceof Planet) {
-                    Planet thisPlanet = (Planet) entry.getValue();
-                    nearbyPlanets.put(entry.getKey(), thisPlanet);
-                    if (thisPlanet.isOwned()) {
-                        if (thisPlanet.getOwner() == myPlayerId) {
-                            nearbyOwnedPlanets.put(entry.getKey(), (Planet) entry.getValue());
-                        } else {
-                            nearbyEnemyOwnedPlanets.put(entry.getKey(), (Planet) entry.getValue());
-                        }
-                    } else {
-                        nearbyUnownedPlanets.put(entry.getKey(), (Planet) entry.getValue());
+            }
+            for (Ship ship : gameMap.getAllShips()) {
+                if (ship.getOwner() != gameInstance.myPlayerId && ship.getDockingStatus() != Ship.DockingStatus.Undocked) {
+                    for (int i = 0; i < ATTACKERS_PER_DOCKED_SHIP; ++i) {
+                        objects.add(ship);
                     }
                 }
             }
+            if (bidders.isEmpty() || objects.isEmpty()) {
+                return;
+            }
 
-            for (Ship ship : gameMap.getAllShips()) {
-                Position shipPosition = new Position(ship.getXPos(), ship.getYPos());
-                Position myPosition = new Position(myShip.getXPos(), myShip.getYPos());
-                Double distance = myPosition.getDistanceTo(shipPosition);
-                if (ship.getOwner() != myPlayerId) {
-                    allEnemyShips.put(distance, ship);
-                    // If enemy ship is docked, docking, or undocking
-                    if (ship.getDockingStatus() != Ship.DockingStatus.Undocked) {
-                        dockedEnemyShips.put(distance, ship);
-                    } else {
-                        undockedEnemyShips.put(distance, ship);
+            // Benefit is the map diagonal less the distance, so every allowed target is worth taking and the
+            // auction minimizes the total distance over as many ships as possible.
+            final double diagonal = gameInstance.getHypotenuse(gameMap.getHeight(), gameMap.getWidth());
+            final int objectCount = objects.size();
+            if (benefits.length < bidders.size() * objectCount) {
+                benefits = new double[bidders.size() * objectCount * 2];
+            }
+            for (int b = 0; b < bidders.size(); ++b) {
+                final Ship ship = bidders.get(b);
+                final int row = b * objectCount;
+                Entity previous = null;
+                double benefit = 0.0d;
+                for (int o = 0; o < objectCount; ++o) {
+                    final Entity target = objects.get(o);
+                    if (target != previous) {
+                        benefit = benefit(gameInstance, gameMap, ship, target, diagonal);
+                        previous = target;
                     }
-                } else {
-                    allMyShips.put(distance, ship);
+                    benefits[row + o] = benefit;
                 }
             }
 
+            final int[] assignment = solver.solve(benefits, bidders.size(), objectCount, EPSILON, turnBudget);
+            for (int b = 0; b < bidders.size(); ++b) {
+                if (assignment[b] >= 0) {
+                    targets.put(bidders.get(b).getId(), objects.get(assignment[b]));
+                    ++assigned;
+                }
+            }
         }
 
-        void destroy() {
-            myNearbyShips.clear();
-            nearbyEnemyShips.clear();
-            nearbyOwnedPlanets.clear();
-            nearbyUnownedPlanets.clear();
-            nearbyEnemyOwnedPlanets.clear();
+        /**
+         * @return how many more of our ships may dock on the planet: all its spots if unowned, none if an enemy's,
+         * and on our own planets as many as keep it under MAX_PLANET_DOCK_PERCENTAGE
+         */
+        static int freeSpots(HaliteGameInstance gameInstance, Planet planet) {
+            if (!planet.isOwned()) {
+                return planet.getDockingSpots() - planet.getDockedShips().size();
+            }
+            if (planet.getOwner() != gameInstance.myPlayerId) {
+                return 0;
+            }
+            final int allowed = (int) Math.ceil(gameInstance.MAX_PLANET_DOCK_PERCENTAGE * planet.getDockingSpots() - 1e-9d);
+            return Math.max(0, allowed - planet.getDockedShips().size());
         }
 
+        static double benefit(HaliteGameInstance gameInstance, GameMap gameMap, Ship ship, Entity target, double diagonal) {
+            if (target instanceof Planet) {
+                return diagonal - Math.max(0.0d, ship.getDistanceTo(target) - target.getRadius());
+            }
+            final double distance = gameMap.getDistanceCache().getDistance(ship, (Ship) target);
+            if (distance > gameInstance.MAX_ATTACK_DOCKED_SHIP_RANGE) {
+                return AuctionSolver.FORBIDDEN;
+            }
+            return diagonal - distance;
+        }
+
+        /**
+         * @return the ship's target this turn, or null if it has none
+         */
+        Entity getTarget(Ship ship) {
+            return targets.get(ship.getId());
+        }
+
+        @Override
+        public String toString() {
+            return "TargetAssignment: " + assigned + " of " + bidders.size() + " ships assigned to " + objects.size()
+                    + " targets in " + solver.getBids() + " bids over " + solver.getRounds() + " rounds"
+                    + (solver.isComplete() ? "" : " (stopped early)");
+        }
+    }
+
+    private static class HaliteShipMoveInstance {
+
+        // Maximum number of nearest enemy ships considered as attack targets.
+        static final int ENEMY_TARGET_CANDIDATES = 16;
+
+        final NeighborFilter planetFilter;
+        final NeighborFilter enemyShipFilter;
+        final NeighborFilter dockedEnemyShipFilter;
+
+        final NeighborBuffer nearbyPlanets;
+        final NeighborBuffer allEnemyShips;
+        final NeighborBuffer dockedEnemyShips;
+
+        // Depth of navigation searches for the current pass, and whether one of them ran out of corrections.
+        int navigationCorrections = Constants.MAX_NAVIGATION_CORRECTIONS;
+        boolean navigationTruncated = false;
+
+        HaliteShipMoveInstance(int myPlayerId) {
+            planetFilter = NeighborFilter.planets();
+            enemyShipFilter = NeighborFilter.ships().notOwnedBy(myPlayerId);
+            // If enemy ship is docked, docking, or undocking
+            dockedEnemyShipFilter = enemyShipFilter.withDockingStatus(
+                    Ship.DockingStatus.Docking, Ship.DockingStatus.Docked, Ship.DockingStatus.Undocking);
+
+            nearbyPlanets = new NeighborBuffer();
+            allEnemyShips = new NeighborBuffer();
+            dockedEnemyShips = new NeighborBuffer();
+        }
+
+        void initialize(GameMap gameMap, Ship myShip, double maxAttackRange) {
+            gameMap.nearest(myShip, gameMap.getAllPlanets().size(), planetFilter, nearbyPlanets);
+            gameMap.withinRadius(myShip, maxAttackRange, ENEMY_TARGET_CANDIDATES, dockedEnemyShipFilter, dockedEnemyShips);
+            gameMap.withinRange(myShip, MIN_ATTACK_RANGE, maxAttackRange, ENEMY_TARGET_CANDIDATES, enemyShipFilter, allEnemyShips);
+        }
+
+        void noteNavigationFailure() {
+            // Navigation only gives up once its corrections are used up; a deeper search might still succeed.
+            if (navigationCorrections < Constants.MAX_NAVIGATION_CORRECTIONS) {
+                navigationTruncated = true;
+            }
+        }
+    }
+
+    /**
+     * Per-turn decision state: the ships to move, the best move found so far for each, and whether each ship's
+     * last search was cut short. A pass either decides every ship, or refines only the truncated ones while the
+     * turn budget lasts; refinement never replaces a move with nothing.
+     */
+    private static class DecisionPass {
+
+        final HaliteGameInstance gameInstance;
+        final GameMap gameMap;
+        final TurnBudget turnBudget;
+        final HaliteShipMoveInstance shipMoveInstance;
+
+        final List<Ship> ships = new ArrayList<>();
+        Move[] moves = new Move[0];
+        boolean[] truncated = new boolean[0];
+
+        // settings of the pass being run
+        int navigationCorrections;
+        boolean refining;
+
+        DecisionPass(HaliteGameInstance gameInstance, GameMap gameMap, TurnBudget turnBudget) {
+            this.gameInstance = gameInstance;
+            this.gameMap = gameMap;
+            this.turnBudget = turnBudget;
+            this.shipMoveInstance = new HaliteShipMoveInstance(gameInstance.myPlayerId);
+        }
+
+        void beginTurn(Collection<Ship> myShips) {
+            ships.clear();
+            ships.addAll(myShips);
+            if (moves.length < ships.size()) {
+                moves = new Move[ships.size() * 2];
+                truncated = new boolean[ships.size() * 2];
+            }
+            Arrays.fill(moves, null);
+            Arrays.fill(truncated, false);
+        }
+
+        void run(int navigationCorrections, boolean refining) {
+            this.navigationCorrections = navigationCorrections;
+            this.refining = refining;
+            if (PARALLEL_DECISIONS) {
+                ForkJoinPool.commonPool().invoke(new ShipDecisionTask(this, 0, ships.size()));
+            } else {
+                decideShips(shipMoveInstance, 0, ships.size());
+            }
+        }
+
+        void decideShips(HaliteShipMoveInstance shipMoveInstance, int from, int to) {
+            shipMoveInstance.navigationCorrections = navigationCorrections;
+            for (int i = from; i < to; ++i) {
+                if (refining && (!truncated[i] || turnBudget.isExpired())) {
+                    continue;
+                }
+                final Move move = decide(shipMoveInstance, ships.get(i), refining ? Trace.PASS_REFINE : Trace.PASS_FALLBACK);
+                if (move != null || !refining) {
+                    moves[i] = move;
+                }
+                truncated[i] = shipMoveInstance.navigationTruncated;
+            }
+        }
+
+        Move decide(HaliteShipMoveInstance shipMoveInstance, Ship ship, byte pass) {
+            if (!Trace.isEnabled()) {
+                return decideShipMove(gameInstance, shipMoveInstance, gameMap, ship);
+            }
+            final long start = System.nanoTime();
+            final Move move = decideShipMove(gameInstance, shipMoveInstance, gameMap, ship);
+            Trace.recordDecision(ship.getId(), pass, System.nanoTime() - start,
+                    move instanceof ThrustMove ? ((ThrustMove) move).getNavigationCorrections() : 0);
+            return move;
+        }
+
+        /**
+         * Commits the moves in ship id order (the order of getShips()), so the output never depends on thread
+         * scheduling. Each thrust is reserved as it is committed; a move whose path crosses one committed earlier
+         * is planned again, sequentially, against the reservations; at full depth while the turn budget lasts, at
+         * fallback depth once it has run out. Returns how many moves were planned again.
+         */
+        int commitMoves(List<Move> moveList) {
+            final MoveReservations reservations = gameMap.getMoveReservations();
+            int replanned = 0;
+            for (int i = 0; i < ships.size(); ++i) {
+                Move move = moves[i];
+                if (move instanceof ThrustMove && reservations.conflicts((ThrustMove) move)) {
+                    shipMoveInstance.navigationCorrections = turnBudget.isExpired()
+                            ? FALLBACK_NAVIGATION_CORRECTIONS : Constants.MAX_NAVIGATION_CORRECTIONS;
+                    move = decide(shipMoveInstance, ships.get(i), Trace.PASS_REPLAN);
+                    ++replanned;
+                }
+                if (move instanceof ThrustMove) {
+                    reservations.reserve((ThrustMove) move);
+                }
+                if (move != null) {
+                    moveList.add(move);
+                }
+            }
+            return replanned;
+        }
+    }
+
+    /**
+     * Runs a decision pass over ships [from, to), splitting the range across the fork-join pool.
+     * Each ship's move is written to its own index of the pass; nothing else is shared but the read-only map.
+     */
+    private static class ShipDecisionTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        // Ships per leaf task; small enough to balance the load, large enough to amortize forking.
+        static final int SHIPS_PER_TASK = 8;
+
+        final DecisionPass pass;
+        final int from;
+        final int to;
+
+        ShipDecisionTask(DecisionPass pass, int from, int to) {
+            this.pass = pass;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SHIPS_PER_TASK) {
+                pass.decideShips(new HaliteShipMoveInstance(pass.gameInstance.myPlayerId), from, to);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new ShipDecisionTask(pass, from, middle), new ShipDecisionTask(pass, middle, to));
+        }
     }
 }
@@ -0,0 +1,83 @@
+package hlt.benchmarks;
+
+import hlt.Collision;
+import hlt.Constants;
+import hlt.Entity;
+import hlt.Position;
+import hlt.Ship;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One segment against every ship of a 640-ship map, with the Entity-based test used by objectsBetween and the
+ * primitive overload used by move reservations. Reported per segment/circle test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollisionBenchmark {
+
+    private static final int TESTS = 640;
+
+    private Position start;
+    private Position end;
+    private Entity[] circles;
+    private double[] circleX;
+    private double[] circleY;
+    private double[] circleRadius;
+
+    @Setup
+    public void setUp() {
+        final List<Ship> ships = GameStates.withShips(TESTS).newMap().getAllShips();
+        circles = ships.toArray(new Entity[0]);
+        circleX = new double[circles.length];
+        circleY = new double[circles.length];
+        circleRadius = new double[circles.length];
+        for (int i = 0; i < circles.length; ++i) {
+            circleX[i] = circles[i].getXPos();
+            circleY[i] = circles[i].getYPos();
+            circleRadius[i] = circles[i].getRadius() + Constants.FORECAST_FUDGE_FACTOR;
+        }
+        final Random random = new Random(3);
+        start = new Position(random.nextDouble() * GameStates.WIDTH, random.nextDouble() * GameStates.HEIGHT);
+        end = new Position(random.nextDouble() * GameStates.WIDTH, random.nextDouble() * GameStates.HEIGHT);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TESTS)
+    public void entitySegmentCircleIntersect(final Blackhole blackhole) {
+        for (final Entity circle : circles) {
+            blackhole.consume(Collision.segmentCircleIntersect(start, end, circle, Constants.FORECAST_FUDGE_FACTOR));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TESTS)
+    public void primitiveSegmentCircleIntersect(final Blackhole blackhole) {
+        final double startX = start.getXPos();
+        final double startY = start.getYPos();
+        final double endX = end.getXPos();
+        final double endY = end.getYPos();
+        for (int i = 0; i < circleX.length; ++i) {
+            blackhole.consume(Collision.segmentCircleIntersect(startX, startY, endX, endY,
+                    circleX[i], circleY[i], circleRadius[i]));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package hlt.benchmarks;
+
+import hlt.GameMap;
+import hlt.NeighborBuffer;
+import hlt.NeighborFilter;
+import hlt.Ship;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same query - the 8 enemy ships nearest to one of ours - answered by walking Ship objects into a TreeMap,
+ * as the bot used to, and by scanning the EntityStore columns into a reused NeighborBuffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityLayoutBenchmark {
+
+    private static final int K = 8;
+
+    @Param({ "12", "120", "320", "640" })
+    public int ships;
+
+    private GameMap map;
+    private List<Ship> myShips;
+    private NeighborFilter enemyShips;
+    private final NeighborBuffer buffer = new NeighborBuffer();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        map = GameStates.withShips(ships).newMap();
+        myShips = new ArrayList<>(map.getMyPlayer().getShips().values());
+        enemyShips = NeighborFilter.ships().notOwnedBy(map.getMyPlayerId());
+    }
+
+    private Ship nextShip() {
+        next = next + 1 == myShips.size() ? 0 : next + 1;
+        return myShips.get(next);
+    }
+
+    @Benchmark
+    public Map<Double, Ship> objectScan() {
+        final Ship origin = nextShip();
+        final TreeMap<Double, Ship> nearest = new TreeMap<>();
+        for (final Ship ship : map.getAllShips()) {
+            if (ship.getOwner() == origin.getOwner()) {
+                continue;
+            }
+            nearest.put(origin.getDistanceTo(ship), ship);
+            if (nearest.size() > K) {
+                nearest.pollLastEntry();
+            }
+        }
+        return nearest;
+    }
+
+    @Benchmark
+    public NeighborBuffer columnScan() {
+        return map.nearest(nextShip(), K, enemyShips, buffer);
+    }
+}
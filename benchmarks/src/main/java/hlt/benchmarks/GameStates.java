@@ -0,0 +1,190 @@
+package hlt.benchmarks;
+
+import hlt.FrameReader;
+import hlt.GameMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic game states in the engine's frame format.
+ *
+ * Four players share a 384 x 256 map with 28 planets, like a mid-size Halite map. About a third of the planets
+ * are owned, each with a few of its owner's ships docked on it; the other ships are spread over the open space
+ * with their owner's ships clustered around a home corner, as in a real game. The same seed and ship count always
+ * give the same frame, so results are comparable between runs.
+ */
+public final class GameStates {
+
+    public static final int WIDTH = 384;
+    public static final int HEIGHT = 256;
+    public static final int PLAYERS = 4;
+    public static final int PLANETS = 28;
+
+    private static final long DEFAULT_SEED = 42;
+
+    private final int totalShips;
+    private final long seed;
+
+    private GameStates(final int totalShips, final long seed) {
+        this.totalShips = totalShips;
+        this.seed = seed;
+    }
+
+    public static GameStates withShips(final int totalShips) {
+        return new GameStates(totalShips, DEFAULT_SEED);
+    }
+
+    public GameStates withSeed(final long newSeed) {
+        return new GameStates(totalShips, newSeed);
+    }
+
+    /**
+     * @return one frame line, newline terminated, as the engine would send it
+     */
+    public byte[] frame() {
+        return frameText().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return a map for player 0 holding this state
+     */
+    public GameMap newMap() {
+        final GameMap map = new GameMap(WIDTH, HEIGHT, 0);
+        load(map, frame());
+        return map;
+    }
+
+    /**
+     * Parses frame into map with the streaming parser, as {@code Networking.updateMap} does.
+     */
+    public static void load(final GameMap map, final byte[] frame) {
+        final FrameReader reader = new FrameReader(new ByteArrayInputStream(frame));
+        try {
+            reader.readFrame();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        map.updateMap(reader);
+    }
+
+    String frameText() {
+        final Random random = new Random(seed);
+        final List<double[]> planets = placePlanets(random);
+
+        // planet owner and docked ship ids, filled while placing ships
+        final int[] planetOwner = new int[PLANETS];
+        final List<List<Integer>> docked = new ArrayList<>();
+        for (int p = 0; p < PLANETS; ++p) {
+            planetOwner[p] = random.nextInt(3) == 0 ? random.nextInt(PLAYERS) : -1;
+            docked.add(new ArrayList<>());
+        }
+
+        final StringBuilder frame = new StringBuilder(totalShips * 64 + PLANETS * 64);
+        frame.append(PLAYERS);
+        int shipId = 0;
+        for (int player = 0; player < PLAYERS; ++player) {
+            final int ships = totalShips / PLAYERS + (player < totalShips % PLAYERS ? 1 : 0);
+            final double homeX = (player % 2 == 0 ? 0.2 : 0.8) * WIDTH;
+            final double homeY = (player < 2 ? 0.25 : 0.75) * HEIGHT;
+            frame.append(' ').append(player).append(' ').append(ships);
+
+            for (int s = 0; s < ships; ++s, ++shipId) {
+                double x = 0;
+                double y = 0;
+                int dockStatus = 0;
+                int dockedPlanet = 0;
+
+                final int planet = random.nextInt(PLANETS);
+                final double[] body = planets.get(planet);
+                if (planetOwner[planet] == player && docked.get(planet).size() < (int) body[3]) {
+                    // dock on the surface of one of our planets
+                    final double angle = random.nextDouble() * 2 * Math.PI;
+                    x = body[0] + (body[2] + 0.6) * Math.cos(angle);
+                    y = body[1] + (body[2] + 0.6) * Math.sin(angle);
+                    dockStatus = 2;
+                    dockedPlanet = planet;
+                    docked.get(planet).add(shipId);
+                } else {
+                    do {
+                        x = clamp(homeX + random.nextGaussian() * WIDTH / 4, WIDTH);
+                        y = clamp(homeY + random.nextGaussian() * HEIGHT / 4, HEIGHT);
+                    } while (insidePlanet(planets, x, y));
+                }
+
+                frame.append(' ').append(shipId)
+                        .append(' ').append(format(x)).append(' ').append(format(y))
+                        .append(' ').append(1 + random.nextInt(255))
+                        .append(" 0.0000 0.0000 ")
+                        .append(dockStatus).append(' ').append(dockedPlanet)
+                        .append(" 0 0");
+            }
+        }
+
+        frame.append(' ').append(PLANETS);
+        for (int p = 0; p < PLANETS; ++p) {
+            final double[] body = planets.get(p);
+            final List<Integer> dockedShips = docked.get(p);
+            final boolean owned = !dockedShips.isEmpty();
+            frame.append(' ').append(p)
+                    .append(' ').append(format(body[0])).append(' ').append(format(body[1]))
+                    .append(' ').append(2000)
+                    .append(' ').append(format(body[2]))
+                    .append(' ').append((int) body[3])
+                    .append(" 0 1000 ")
+                    .append(owned ? 1 : 0).append(' ').append(owned ? planetOwner[p] : 0)
+                    .append(' ').append(dockedShips.size());
+            for (final int id : dockedShips) {
+                frame.append(' ').append(id);
+            }
+        }
+        return frame.append('\n').toString();
+    }
+
+    // x, y, radius, docking spots
+    private static List<double[]> placePlanets(final Random random) {
+        final List<double[]> planets = new ArrayList<>();
+        while (planets.size() < PLANETS) {
+            final double radius = 3 + random.nextDouble() * 9;
+            final double x = 20 + random.nextDouble() * (WIDTH - 40);
+            final double y = 20 + random.nextDouble() * (HEIGHT - 40);
+            boolean clear = true;
+            for (final double[] other : planets) {
+                final double gap = radius + other[2] + 10;
+                if ((x - other[0]) * (x - other[0]) + (y - other[1]) * (y - other[1]) < gap * gap) {
+                    clear = false;
+                    break;
+                }
+            }
+            if (clear) {
+                planets.add(new double[] { x, y, radius, 2 + (int) (radius / 3) });
+            }
+        }
+        return planets;
+    }
+
+    private static boolean insidePlanet(final List<double[]> planets, final double x, final double y) {
+        for (final double[] body : planets) {
+            final double clearance = body[2] + 2;
+            if ((x - body[0]) * (x - body[0]) + (y - body[1]) * (y - body[1]) < clearance * clearance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double clamp(final double value, final int size) {
+        return Math.max(1, Math.min(size - 1, value));
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+}
@@ -0,0 +1,108 @@
+package hlt.benchmarks;
+
+import hlt.DockMove;
+import hlt.GameMap;
+import hlt.Move;
+import hlt.MoveEncoder;
+import hlt.Planet;
+import hlt.Ship;
+import hlt.ThrustMove;
+import hlt.UndockMove;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding one turn's moves: the reusable byte buffer against the StringBuilder line it replaced.
+ *
+ * Most moves are thrusts, with a few docks, undocks and noops mixed in. Both sides write to a stream that
+ * discards its input, so only encoding is measured, not the pipe.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveEncoderBenchmark {
+
+    @Param({ "120", "320", "640" })
+    public int ships;
+
+    private final List<Move> moves = new ArrayList<>();
+    private final MoveEncoder encoder = new MoveEncoder();
+    private final OutputStream sink = new OutputStream() {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        final GameMap map = GameStates.withShips(ships).newMap();
+        final Planet planet = map.getAllPlanets().values().iterator().next();
+        final Random random = new Random(7);
+        for (final Ship ship : map.getAllShips()) {
+            final int kind = random.nextInt(20);
+            if (kind == 0) {
+                moves.add(new DockMove(ship, planet));
+            } else if (kind == 1) {
+                moves.add(new UndockMove(ship));
+            } else if (kind == 2) {
+                moves.add(new Move(Move.MoveType.Noop, ship));
+            } else {
+                moves.add(new ThrustMove(ship, random.nextInt(360), 1 + random.nextInt(7)));
+            }
+        }
+    }
+
+    @Benchmark
+    public int encoder() throws Exception {
+        encoder.encode(moves).writeTo(sink);
+        return encoder.length();
+    }
+
+    @Benchmark
+    public int stringBuilder() throws Exception {
+        final StringBuilder line = new StringBuilder();
+        for (final Move move : moves) {
+            switch (move.getType()) {
+                case Noop:
+                    continue;
+                case Undock:
+                    line.append('u').append(" ").append(move.getShip().getId()).append(" ");
+                    break;
+                case Dock:
+                    line.append('d').append(" ").append(move.getShip().getId())
+                            .append(" ").append(((DockMove) move).getDestinationId()).append(" ");
+                    break;
+                case Thrust:
+                    line.append('t').append(" ").append(move.getShip().getId())
+                            .append(" ").append(((ThrustMove) move).getThrust())
+                            .append(" ").append(((ThrustMove) move).getAngle()).append(" ");
+                    break;
+            }
+        }
+        final byte[] bytes = (line + System.lineSeparator()).getBytes();
+        sink.write(bytes, 0, bytes.length);
+        return bytes.length;
+    }
+}
@@ -0,0 +1,80 @@
+package hlt.benchmarks;
+
+import hlt.Constants;
+import hlt.GameMap;
+import hlt.Navigation;
+import hlt.Planet;
+import hlt.Position;
+import hlt.Ship;
+import hlt.ThrustMove;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Docking-style navigation of every ship toward the closest point of every planet, with the recursive
+ * angle-stepping navigator and the free-heading navigator that replaced it, both allowed the same deviation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NavigationBenchmark {
+
+    private static final double ANGULAR_STEP_RAD = Math.PI / 180.0;
+
+    @Param({ "12", "120", "320", "640" })
+    public int ships;
+
+    private GameMap map;
+    private final List<Ship> navigators = new ArrayList<>();
+    private final List<Position> targets = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        map = GameStates.withShips(ships).newMap();
+        for (final Ship ship : map.getAllShips()) {
+            if (ship.getDockingStatus() != Ship.DockingStatus.Undocked) {
+                continue;
+            }
+            for (final Planet planet : map.getAllPlanets().values()) {
+                navigators.add(ship);
+                targets.add(ship.getClosestPoint(planet));
+            }
+        }
+    }
+
+    private int nextPair() {
+        next = next + 1 == navigators.size() ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public ThrustMove recursiveNavigator() {
+        final int i = nextPair();
+        return Navigation.navigateShipTowardsTarget(map, navigators.get(i), targets.get(i), Constants.MAX_SPEED,
+                true, Constants.MAX_NAVIGATION_CORRECTIONS, ANGULAR_STEP_RAD);
+    }
+
+    @Benchmark
+    public ThrustMove freeHeadingNavigator() {
+        final int i = nextPair();
+        return Navigation.navigateShipAroundObstacles(map, navigators.get(i), targets.get(i), Constants.MAX_SPEED,
+                (Constants.MAX_NAVIGATION_CORRECTIONS - 1) * ANGULAR_STEP_RAD);
+    }
+}
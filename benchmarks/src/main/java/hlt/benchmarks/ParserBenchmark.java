@@ -0,0 +1,73 @@
+package hlt.benchmarks;
+
+import hlt.FrameReader;
+import hlt.GameMap;
+import hlt.Metadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame parsing: {@link GameMap#updateMap} fed by the streaming {@link FrameReader} (rebuilding the map, or updating
+ * it in place) and by the String-splitting {@link Metadata} path it replaced. The channel variant decodes from the
+ * direct buffer the bot reads stdin into.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    @Param({ "12", "120", "320", "640" })
+    public int ships;
+
+    @Param({ "false", "true" })
+    public boolean incremental;
+
+    private String frameLine;
+    private FrameReader reader;
+    private FrameReader channelReader;
+    private GameMap map;
+
+    @Setup
+    public void setUp() {
+        final byte[] frame = GameStates.withShips(ships).frame();
+        frameLine = new String(frame, StandardCharsets.US_ASCII);
+        reader = new FrameReader(new RepeatingInputStream(frame));
+        channelReader = new FrameReader(Channels.newChannel(new RepeatingInputStream(frame)));
+        map = GameStates.withShips(ships).newMap();
+        map.setIncrementalUpdates(incremental);
+    }
+
+    @Benchmark
+    public GameMap streamingParser() throws IOException {
+        reader.readFrame();
+        return map.updateMap(reader);
+    }
+
+    @Benchmark
+    public GameMap channelParser() throws IOException {
+        channelReader.readFrame();
+        return map.updateMap(channelReader);
+    }
+
+    @Benchmark
+    public GameMap stringSplittingParser() {
+        return map.updateMap(new Metadata(frameLine.trim().split(" ")));
+    }
+}
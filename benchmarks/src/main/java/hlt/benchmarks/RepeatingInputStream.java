@@ -0,0 +1,32 @@
+package hlt.benchmarks;
+
+import java.io.InputStream;
+
+/**
+ * Serves the same bytes over and over, so a {@link hlt.FrameReader} can be benchmarked on an endless stream of
+ * identical frames without reallocating its buffer.
+ */
+final class RepeatingInputStream extends InputStream {
+
+    private final byte[] data;
+    private int position;
+
+    RepeatingInputStream(final byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public int read() {
+        final int value = data[position] & 0xff;
+        position = (position + 1) % data.length;
+        return value;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) {
+        final int count = Math.min(length, data.length - position);
+        System.arraycopy(data, position, buffer, offset, count);
+        position = (position + count) % data.length;
+        return count;
+    }
+}
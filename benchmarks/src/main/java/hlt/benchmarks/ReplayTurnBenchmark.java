@@ -0,0 +1,78 @@
+package hlt.benchmarks;
+
+import hlt.GameMap;
+import hlt.Move;
+import hlt.ReplayReader;
+import hlt.TurnBudget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TurnBenchmark} over the frames of a recorded game instead of a synthetic one: each invocation plays the
+ * next frame of the replay, wrapping around at the end, so the score averages over every phase of a real game.
+ *
+ * The replay is chosen with {@code -p replay=path}; the default is the one kept at the project root, relative to
+ * the benchmarks directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayTurnBenchmark {
+
+    @Param({ "../replay-20171118-113419-0700--433886075-240-160-145428.hlt" })
+    public String replay;
+
+    @Param({ "0" })
+    public int playerId;
+
+    private final List<byte[]> frames = new ArrayList<>();
+    private int nextFrame;
+    private GameMap map;
+    private Object bot;
+    private final List<Move> moves = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Throwable {
+        try (ReplayReader reader = new ReplayReader(new File(replay))) {
+            while (reader.nextFrame()) {
+                frames.add(reader.getFrameText().getBytes(StandardCharsets.US_ASCII));
+            }
+            map = new GameMap(reader.getWidth(), reader.getHeight(), playerId);
+        }
+        map.setIncrementalUpdates(true);
+        GameStates.load(map, frames.get(0));
+        bot = TurnBenchmark.NEW_BOT.invoke(map, new TurnBudget(TimeUnit.DAYS.toMillis(1), 0));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearMoves() {
+        moves.clear();
+    }
+
+    @Benchmark
+    public List<Move> turn() throws Throwable {
+        GameStates.load(map, frames.get(nextFrame));
+        nextFrame = (nextFrame + 1) % frames.size();
+        TurnBenchmark.PLAY_TURN.invoke(bot, moves);
+        return moves;
+    }
+}
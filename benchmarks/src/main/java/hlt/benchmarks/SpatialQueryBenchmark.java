@@ -0,0 +1,90 @@
+package hlt.benchmarks;
+
+import hlt.Entity;
+import hlt.GameMap;
+import hlt.Position;
+import hlt.Ship;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-map and radius-limited neighbor scans, and path obstacle queries, from a rotating set of ships.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpatialQueryBenchmark {
+
+    private static final double NEARBY_RADIUS = 30.0;
+
+    @Param({ "12", "120", "320", "640" })
+    public int ships;
+
+    private GameMap map;
+    private List<Ship> allShips;
+    private Position[] targets;
+    private final List<Entity> obstacles = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        map = GameStates.withShips(ships).newMap();
+        allShips = map.getAllShips();
+        final Random random = new Random(7);
+        targets = new Position[allShips.size()];
+        for (int i = 0; i < targets.length; ++i) {
+            // mostly a turn or a few away, like navigation targets
+            final double angle = random.nextDouble() * 2 * Math.PI;
+            final double distance = 5 + random.nextDouble() * 60;
+            targets[i] = new Position(allShips.get(i).getXPos() + Math.cos(angle) * distance,
+                    allShips.get(i).getYPos() + Math.sin(angle) * distance);
+        }
+    }
+
+    private int nextShip() {
+        next = next + 1 == allShips.size() ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public Map<Double, Entity> nearbyEntitiesByDistance() {
+        return map.nearbyEntitiesByDistance(allShips.get(nextShip()));
+    }
+
+    @Benchmark
+    public Map<Double, Entity> nearbyEntitiesWithinRadius() {
+        return map.nearbyEntitiesByDistance(allShips.get(nextShip()), NEARBY_RADIUS);
+    }
+
+    @Benchmark
+    public List<Entity> objectsBetween() {
+        final int i = nextShip();
+        return map.objectsBetween(allShips.get(i), targets[i]);
+    }
+
+    @Benchmark
+    public List<Entity> objectsBetweenReusingList() {
+        final int i = nextShip();
+        obstacles.clear();
+        map.objectsBetween(allShips.get(i), targets[i], obstacles);
+        return obstacles;
+    }
+}
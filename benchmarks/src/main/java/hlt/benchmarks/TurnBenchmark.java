@@ -0,0 +1,86 @@
+package hlt.benchmarks;
+
+import hlt.GameMap;
+import hlt.Move;
+import hlt.TurnBudget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full MyBot turn for player 0: parse the frame, then decide and commit every ship's move.
+ *
+ * MyBot lives in the default package, which cannot be imported, so it is reached through method handles; the
+ * cost of that is negligible next to a turn. The turn budget is effectively unlimited so every turn does all of
+ * its refinement work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TurnBenchmark {
+
+    static final MethodHandle NEW_BOT;
+    static final MethodHandle PLAY_TURN;
+
+    static {
+        try {
+            final Class<?> botClass = Class.forName("MyBot");
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            NEW_BOT = lookup.findConstructor(botClass,
+                    MethodType.methodType(void.class, GameMap.class, TurnBudget.class));
+            PLAY_TURN = lookup.findVirtual(botClass, "playTurn", MethodType.methodType(void.class, List.class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({ "12", "120", "320", "640" })
+    public int ships;
+
+    private byte[] frame;
+    private GameMap map;
+    private Object bot;
+    private final List<Move> moves = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Throwable {
+        frame = GameStates.withShips(ships).frame();
+        map = new GameMap(GameStates.WIDTH, GameStates.HEIGHT, 0);
+        map.setIncrementalUpdates(true);
+        GameStates.load(map, frame);
+        bot = NEW_BOT.invoke(map, new TurnBudget(TimeUnit.DAYS.toMillis(1), 0));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearMoves() {
+        moves.clear();
+    }
+
+    @Benchmark
+    public List<Move> turn() throws Throwable {
+        // Reparsing also clears the previous invocation's move reservations.
+        GameStates.load(map, frame);
+        PLAY_TURN.invoke(bot, moves);
+        return moves;
+    }
+}
@@ -0,0 +1,130 @@
+package hlt.benchmarks;
+
+import hlt.Constants;
+import hlt.GameMap;
+import hlt.Navigation;
+import hlt.Planet;
+import hlt.Position;
+import hlt.ReplayReader;
+import hlt.Ship;
+import hlt.ThrustMove;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the free-heading navigator against the recursive one it replaced, on the same pairs as
+ * {@link NavigationBenchmark}: every undocked ship toward the closest point of every planet, in every frame of a
+ * recorded game and in the synthetic 640-ship state. Both are allowed the same deviation. For every pair:
+ * <ul>
+ * <li>the heading the new navigator returns has nothing on its path;</li>
+ * <li>where it turns further from the target than the old one, the old heading was blocked;</li>
+ * <li>where the old heading was clear and within the allowed deviation, the new navigator finds a move too;</li>
+ * <li>both send the same thrust.</li>
+ * </ul>
+ *
+ * Runs with {@code mvn -B test} from the benchmarks directory, against the replay kept at the project root.
+ */
+public class NavigatorRegressionTest {
+
+    private static final double ANGULAR_STEP_RAD = Math.PI / 180.0;
+    private static final double MAX_DEVIATION_RAD = (Constants.MAX_NAVIGATION_CORRECTIONS - 1) * ANGULAR_STEP_RAD;
+    private static final int SYNTHETIC_SHIPS = 640;
+    private static final int MAX_REPORTED_FAILURES = 20;
+
+    private final StringBuilder report = new StringBuilder();
+    private long pairs;
+    private long failures;
+
+    @Test
+    public void replayFrames() throws IOException {
+        try (ReplayReader reader = new ReplayReader(ParserEquivalenceTest.REPLAY)) {
+            while (reader.nextFrame()) {
+                for (int player = 0; player < reader.getPlayerCount(); ++player) {
+                    check(reader.newMap(player), player);
+                }
+            }
+        }
+        assertNoFailures();
+    }
+
+    @Test
+    public void syntheticCrowd() {
+        check(GameStates.withShips(SYNTHETIC_SHIPS).newMap(), -1);
+        assertNoFailures();
+    }
+
+    private void assertNoFailures() {
+        assertTrue("no ship and planet pairs to check", pairs > 0);
+        assertEquals("failing pairs of " + pairs + ":\n" + report, 0, failures);
+    }
+
+    /**
+     * @param player only that player's ships navigate; -1 for every player's
+     */
+    private void check(final GameMap map, final int player) {
+        for (final Ship ship : map.getAllShips()) {
+            if (ship.getDockingStatus() != Ship.DockingStatus.Undocked || (player >= 0 && ship.getOwner() != player)) {
+                continue;
+            }
+            for (final Planet planet : map.getAllPlanets().values()) {
+                check(map, ship, ship.getClosestPoint(planet));
+            }
+        }
+    }
+
+    private void check(final GameMap map, final Ship ship, final Position target) {
+        ++pairs;
+        final ThrustMove oldMove = Navigation.navigateShipTowardsTarget(map, ship, target, Constants.MAX_SPEED,
+                true, Constants.MAX_NAVIGATION_CORRECTIONS, ANGULAR_STEP_RAD);
+        final ThrustMove newMove = Navigation.navigateShipAroundObstacles(map, ship, target, Constants.MAX_SPEED,
+                MAX_DEVIATION_RAD);
+
+        final double distance = ship.getDistanceTo(target);
+        final double targetDeg = Math.toDegrees(ship.orientTowardsInRad(target));
+        final boolean oldClear = oldMove != null && isClear(map, ship, oldMove.getAngle(), distance);
+
+        if (newMove == null) {
+            if (oldClear && deviation(oldMove.getAngle(), targetDeg) <= Math.toDegrees(MAX_DEVIATION_RAD)) {
+                fail(ship, target, "no move, but the old heading " + oldMove.getAngle() + " is clear");
+            }
+            return;
+        }
+        if (!isClear(map, ship, newMove.getAngle(), distance)) {
+            fail(ship, target, "heading " + newMove.getAngle() + " is blocked");
+        }
+        if (oldMove == null) {
+            return;
+        }
+        if (deviation(newMove.getAngle(), targetDeg) > deviation(oldMove.getAngle(), targetDeg) && oldClear) {
+            fail(ship, target, "heading " + newMove.getAngle() + " turns further than the clear old heading "
+                    + oldMove.getAngle());
+        }
+        if (newMove.getThrust() != oldMove.getThrust()) {
+            fail(ship, target, "thrust " + newMove.getThrust() + " instead of " + oldMove.getThrust());
+        }
+    }
+
+    private static boolean isClear(final GameMap map, final Ship ship, final int headingDeg, final double distance) {
+        final double headingRad = Math.toRadians(headingDeg);
+        final Position end = new Position(ship.getXPos() + Math.cos(headingRad) * distance,
+                ship.getYPos() + Math.sin(headingRad) * distance);
+        return map.objectsBetween(ship, end).isEmpty();
+    }
+
+    private static double deviation(final int headingDeg, final double targetDeg) {
+        final double difference = Math.abs(headingDeg - targetDeg) % 360.0;
+        return Math.min(difference, 360.0 - difference);
+    }
+
+    private void fail(final Ship ship, final Position target, final String problem) {
+        if (++failures <= MAX_REPORTED_FAILURES) {
+            report.append("ship ").append(ship.getId()).append(" at (").append(ship.getXPos()).append(", ")
+                    .append(ship.getYPos()).append(") to (").append(target.getXPos()).append(", ")
+                    .append(target.getYPos()).append("): ").append(problem).append('\n');
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package hlt.benchmarks;
+
+import hlt.FrameReader;
+import hlt.GameMap;
+import hlt.Metadata;
+import hlt.Planet;
+import hlt.Player;
+import hlt.ReplayReader;
+import hlt.Ship;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the streaming {@link FrameReader} decodes every frame of a recorded game exactly like the
+ * String-splitting {@link Metadata} path it replaced: every frame, seen by every player, is loaded into a map by
+ * both, and every decoded field of every player, ship and planet is compared. The streaming parser is checked both
+ * rebuilding the map and updating one map in place across the whole game.
+ *
+ * Runs with {@code mvn -B test} from the benchmarks directory, against the replay kept at the project root.
+ */
+public class ParserEquivalenceTest {
+
+    static final File REPLAY = new File("../replay-20171118-113419-0700--433886075-240-160-145428.hlt");
+
+    @Test
+    public void streamingParserDecodesEveryFrameLikeMetadata() throws IOException {
+        try (ReplayReader reader = new ReplayReader(REPLAY)) {
+            final int players = reader.getPlayerCount();
+            final GameMap[] incremental = new GameMap[players];
+            for (int player = 0; player < players; ++player) {
+                incremental[player] = new GameMap(reader.getWidth(), reader.getHeight(), player);
+                incremental[player].setIncrementalUpdates(true);
+            }
+
+            int frames = 0;
+            while (reader.nextFrame()) {
+                final String frame = reader.getFrameText();
+                for (int player = 0; player < players; ++player) {
+                    final GameMap split = new GameMap(reader.getWidth(), reader.getHeight(), player);
+                    split.updateMap(new Metadata(frame.trim().split(" ")));
+                    final String expected = describe(split);
+
+                    final GameMap streaming = new GameMap(reader.getWidth(), reader.getHeight(), player);
+                    load(streaming, frame);
+                    load(incremental[player], frame);
+
+                    assertDecodedAlike("frame " + frames + ", player " + player + ", rebuild",
+                            expected, describe(streaming));
+                    assertDecodedAlike("frame " + frames + ", player " + player + ", in place",
+                            expected, describe(incremental[player]));
+                }
+                ++frames;
+            }
+            assertTrue("no frames in " + REPLAY, frames > 0);
+        }
+    }
+
+    private static void load(final GameMap map, final String frame) throws IOException {
+        final FrameReader frameReader = new FrameReader(
+                new ByteArrayInputStream(frame.getBytes(StandardCharsets.US_ASCII)));
+        frameReader.readFrame();
+        map.updateMap(frameReader);
+    }
+
+    /**
+     * Fails on the first entity line that differs, rather than on the whole description.
+     */
+    private static void assertDecodedAlike(final String where, final String expected, final String actual) {
+        if (expected.equals(actual)) {
+            return;
+        }
+        final String[] expectedLines = expected.split("\n");
+        final String[] actualLines = actual.split("\n");
+        int line = 0;
+        while (line < expectedLines.length && line < actualLines.length
+                && expectedLines[line].equals(actualLines[line])) {
+            ++line;
+        }
+        assertEquals(where + ", FrameReader against Metadata",
+                line < expectedLines.length ? expectedLines[line] : "(nothing)",
+                line < actualLines.length ? actualLines[line] : "(nothing)");
+    }
+
+    /**
+     * @return every decoded field of the map's players, ships and planets, one entity per line, in id order
+     */
+    private static String describe(final GameMap map) {
+        final StringBuilder out = new StringBuilder();
+        for (final Player player : map.getAllPlayers()) {
+            out.append("player ").append(player.getId()).append('\n');
+            for (final Ship ship : player.getShips().values()) {
+                out.append("ship ").append(ship.getId())
+                        .append(" owner ").append(ship.getOwner())
+                        .append(" x ").append(ship.getXPos())
+                        .append(" y ").append(ship.getYPos())
+                        .append(" health ").append(ship.getHealth())
+                        .append(" radius ").append(ship.getRadius())
+                        .append(' ').append(ship.getDockingStatus())
+                        .append(" planet ").append(ship.getDockedPlanet())
+                        .append(" progress ").append(ship.getDockingProgress())
+                        .append(" cooldown ").append(ship.getWeaponCooldown())
+                        .append('\n');
+            }
+        }
+        for (final Planet planet : map.getAllPlanets().values()) {
+            out.append("planet ").append(planet.getId())
+                    .append(" owned ").append(planet.isOwned())
+                    .append(" owner ").append(planet.getOwner())
+                    .append(" x ").append(planet.getXPos())
+                    .append(" y ").append(planet.getYPos())
+                    .append(" health ").append(planet.getHealth())
+                    .append(" radius ").append(planet.getRadius())
+                    .append(" spots ").append(planet.getDockingSpots())
+                    .append(" production ").append(planet.getCurrentProduction())
+                    .append(" remaining ").append(planet.getRemainingProduction())
+                    .append(" docked ").append(planet.getDockedShips())
+                    .append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,177 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Assigns bidders to objects so the total benefit is (nearly) the largest possible, by Bertsekas' auction.
+ *
+ * Each unassigned bidder bids for the object worth most to it at current prices, raising that object's price by
+ * how much better it is than the bidder's second choice plus epsilon, and takes it from its previous owner, who
+ * bids again. A bidder may also stay unassigned, worth 0 to it; internally this is a dummy object per bidder, and
+ * a dummy bidder per object stands for an object left unused, so the problem is square and every round ends with
+ * everyone assigned. The result is within (bidders + objects) * epsilon of the best total benefit.
+ *
+ * Bidders competing for interchangeable objects, such as copies of a planet's dock spots or the dummy objects,
+ * outbid each other by only epsilon at a time, so settling prices from 0 takes about (benefit / epsilon) bids per
+ * bidder. The auction therefore runs in rounds of decreasing epsilon (epsilon scaling): the first round, with a
+ * quarter of the largest benefit, sets rough prices in a few bids, and each later round starts from the prices of
+ * the one before with a quarter of its epsilon, down to the requested one.
+ *
+ * A target that takes several bidders, such as a planet's free dock spots, is given as that many objects with the
+ * same benefits. Arrays are kept between solves, so a solver reused every turn does not allocate.
+ */
+public class AuctionSolver {
+
+    /** Marks a bidder-object pair that may not be assigned */
+    public static final double FORBIDDEN = Double.NEGATIVE_INFINITY;
+
+    /** Epsilon is divided by this much from one round to the next */
+    public static final double EPSILON_SCALING = 4.0;
+
+    // Upper bound on bids per bidder in a round; a round that reaches it ends the solve with the assignment so far.
+    private static final int MAX_BIDS_PER_BIDDER = 1000;
+
+    // Bids between two checks of the turn budget.
+    private static final int BIDS_PER_BUDGET_CHECK = 64;
+
+    // indexed by row (bidders, then one dummy bidder per object) or column (objects, then one dummy per bidder)
+    private double[] prices = new double[0];
+    private int[] owners = new int[0];
+    private int[] assignment = new int[0];
+    private int[] queue = new int[0];
+    private int bids;
+    private int rounds;
+    private boolean complete;
+
+    /**
+     * Same as {@link #solve(double[], int, int, double, TurnBudget)} with no time limit.
+     */
+    public int[] solve(final double[] benefits, final int bidders, final int objects, final double epsilon) {
+        return solve(benefits, bidders, objects, epsilon, null);
+    }
+
+    /**
+     * @param benefits benefit of each pair as [bidder * objects + object]; {@link #FORBIDDEN} where not allowed
+     * @param epsilon  price step of the last round; smaller is closer to optimal and slower
+     * @param budget   once expired, the solve stops and returns the assignment so far; null for no limit
+     * @return the object of each bidder in [0, bidders), or -1; valid until the next solve
+     */
+    public int[] solve(final double[] benefits, final int bidders, final int objects, final double epsilon,
+                       final TurnBudget budget) {
+        final int size = bidders + objects;
+        if (prices.length < size) {
+            prices = new double[size];
+            owners = new int[size];
+            assignment = new int[size];
+            queue = new int[size];
+        }
+        Arrays.fill(prices, 0, size, 0.0);
+        bids = 0;
+        rounds = 0;
+        complete = false;
+
+        double maxBenefit = 0.0;
+        for (int i = 0; i < bidders * objects; ++i) {
+            maxBenefit = Math.max(maxBenefit, benefits[i]);
+        }
+        double roundEpsilon = Math.max(epsilon, maxBenefit / EPSILON_SCALING);
+        while (true) {
+            ++rounds;
+            complete = bid(benefits, bidders, objects, roundEpsilon, budget);
+            if (!complete || roundEpsilon <= epsilon) {
+                break;
+            }
+            roundEpsilon = Math.max(epsilon, roundEpsilon / EPSILON_SCALING);
+        }
+
+        // Bidders holding a dummy object stay unassigned.
+        for (int bidder = 0; bidder < bidders; ++bidder) {
+            if (assignment[bidder] >= objects) {
+                assignment[bidder] = -1;
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * Runs one round of bidding from the current prices, with every row unassigned.
+     *
+     * @return false if the round was cut short by the budget or the bid limit
+     */
+    private boolean bid(final double[] benefits, final int bidders, final int objects, final double epsilon,
+                        final TurnBudget budget) {
+        final int size = bidders + objects;
+        Arrays.fill(owners, 0, size, -1);
+        Arrays.fill(assignment, 0, size, -1);
+
+        // Circular queue of rows waiting to bid; each row is in it at most once.
+        for (int row = 0; row < size; ++row) {
+            queue[row] = row;
+        }
+        int head = 0;
+        int waiting = size;
+        int roundBids = 0;
+        final long maxBids = (long) MAX_BIDS_PER_BIDDER * size;
+
+        while (waiting > 0) {
+            if (roundBids >= maxBids
+                    || (budget != null && roundBids % BIDS_PER_BUDGET_CHECK == 0 && budget.isExpired())) {
+                return false;
+            }
+            final int row = queue[head];
+            head = head + 1 == size ? 0 : head + 1;
+            --waiting;
+
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double secondValue = Double.NEGATIVE_INFINITY;
+            for (int column = 0; column < size; ++column) {
+                // Every pair involving a dummy is worth 0.
+                final double benefit = row < bidders && column < objects ? benefits[row * objects + column] : 0.0;
+                final double value = benefit - prices[column];
+                if (value > bestValue) {
+                    secondValue = bestValue;
+                    bestValue = value;
+                    best = column;
+                } else if (value > secondValue) {
+                    secondValue = value;
+                }
+            }
+
+            ++roundBids;
+            ++bids;
+            // With no second choice, nothing competes for the row's best but the step itself.
+            prices[best] += (secondValue == Double.NEGATIVE_INFINITY ? 0.0 : bestValue - secondValue) + epsilon;
+            final int previous = owners[best];
+            owners[best] = row;
+            assignment[row] = best;
+            if (previous >= 0) {
+                assignment[previous] = -1;
+                queue[(head + waiting) % size] = previous;
+                ++waiting;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return bids placed by the last solve, over all its rounds
+     */
+    public int getBids() {
+        return bids;
+    }
+
+    /**
+     * @return epsilon rounds run by the last solve
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * @return whether the last solve finished its last round, rather than stopping at the budget or bid limit
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
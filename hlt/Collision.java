@@ -49,6 +49,27 @@ public class Collision {
         return closestDistance <= circleRadius + fudge;
     }
 
+    /**
+     * Test whether the segment from (startX, startY) to (endX, endY) comes within radius of (centerX, centerY).
+     * Unlike the Entity version, the closest point is clamped to both ends of the segment and nothing is allocated.
+     */
+    public static boolean segmentCircleIntersect(final double startX, final double startY,
+                                                 final double endX, final double endY,
+                                                 final double centerX, final double centerY,
+                                                 final double radius) {
+        final double dx = endX - startX;
+        final double dy = endY - startY;
+        final double lengthSquared = square(dx) + square(dy);
+
+        double t = 0.0;
+        if (lengthSquared > 0.0) {
+            t = ((centerX - startX) * dx + (centerY - startY) * dy) / lengthSquared;
+            t = Math.max(0.0, Math.min(1.0, t));
+        }
+
+        return square(startX + dx * t - centerX) + square(startY + dy * t - centerY) <= square(radius);
+    }
+
     public static double square(final double num) {
         return num * num;
     }
@@ -0,0 +1,257 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Forecasts next turn's weapon fire from the current positions, and rates every ship safe, winning or losing.
+ *
+ * Uses the engine's rules: every undocked ship whose weapon is ready by next turn splits
+ * {@link Constants#WEAPON_DAMAGE} evenly between the enemy ships in range, and all damage lands at once. Since
+ * ships move before they fire, the range is the firing range plus the distance ships can close in one turn
+ * ({@code reach}); by default both sides flying straight at each other at full speed, so the forecast covers every
+ * fight that could start next turn.
+ *
+ * Ships that could exchange fire form a cluster. A ship is {@link Outcome#SAFE} if nothing can shoot it,
+ * {@link Outcome#LOSING} if it would not survive or its side takes more damage in its cluster than it deals, and
+ * {@link Outcome#WINNING} otherwise.
+ *
+ * {@link #update(GameMap)} reads the map's {@link EntityStore} columns and buckets ships into a grid of cells as
+ * wide as the range, so a turn costs O(ships x neighbors in range). Results are per ship slot, so queries are
+ * array reads and may come from many threads until the next update.
+ */
+public class CombatForecast {
+
+    public enum Outcome { SAFE, WINNING, LOSING }
+
+    /** Distance within which two ships exchange fire, center to center */
+    public static final double FIRING_RANGE = Constants.WEAPON_RADIUS + 2 * Constants.SHIP_RADIUS;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final double range;
+    private final double rangeSquared;
+
+    private EntityStore store;
+    private int shipCount;
+
+    // per ship slot
+    private int[] targetCount = new int[INITIAL_CAPACITY];
+    private double[] incomingDamage = new double[INITIAL_CAPACITY];
+    private int[] cluster = new int[INITIAL_CAPACITY];
+    // per (cluster root slot, player)
+    private double[] damageDealt = new double[INITIAL_CAPACITY * Constants.MAX_PLAYERS];
+    private double[] damageTaken = new double[INITIAL_CAPACITY * Constants.MAX_PLAYERS];
+
+    // ship slots bucketed by grid cell
+    private int columns;
+    private int rows;
+    private int[] cellStart = new int[1];
+    private int[] cellItems = new int[INITIAL_CAPACITY];
+    private int[] cellOfShip = new int[INITIAL_CAPACITY];
+
+    public CombatForecast() {
+        this(2 * Constants.MAX_SPEED);
+    }
+
+    /**
+     * @param reach how far beyond {@link #FIRING_RANGE} ships count as engaged; 0 forecasts fire where ships stand
+     */
+    public CombatForecast(final double reach) {
+        this.range = FIRING_RANGE + reach;
+        this.rangeSquared = range * range;
+    }
+
+    /**
+     * Forecasts the fights of the map's current turn; call after every {@link GameMap#updateMap(TokenStream)}.
+     */
+    public void update(final GameMap gameMap) {
+        store = gameMap.getEntityStore();
+        shipCount = store.getShipCount();
+        ensureCapacity(shipCount);
+        bucket(gameMap.getWidth(), gameMap.getHeight());
+
+        final int[] owner = store.getShipOwner();
+        final int[] dockStatus = store.getShipDockStatus();
+        final int[] cooldown = store.getShipCooldown();
+
+        Arrays.fill(incomingDamage, 0, shipCount, 0.0);
+        Arrays.fill(damageDealt, 0, shipCount * Constants.MAX_PLAYERS, 0.0);
+        Arrays.fill(damageTaken, 0, shipCount * Constants.MAX_PLAYERS, 0.0);
+        for (int slot = 0; slot < shipCount; ++slot) {
+            cluster[slot] = slot;
+        }
+
+        // Pass 1: count each ready ship's targets, and join every pair that could exchange fire into one cluster.
+        for (int slot = 0; slot < shipCount; ++slot) {
+            targetCount[slot] = forEachEnemyInRange(slot, true);
+        }
+
+        // Pass 2: split each ready ship's damage between its targets.
+        final int undocked = Ship.DockingStatus.Undocked.ordinal();
+        for (int slot = 0; slot < shipCount; ++slot) {
+            if (targetCount[slot] > 0 && dockStatus[slot] == undocked && cooldown[slot] <= Constants.WEAPON_COOLDOWN) {
+                forEachEnemyInRange(slot, false);
+                damageDealt[find(slot) * Constants.MAX_PLAYERS + owner[slot]] += Constants.WEAPON_DAMAGE;
+            }
+        }
+        for (int slot = 0; slot < shipCount; ++slot) {
+            // Point every ship straight at its root, so queries only read.
+            cluster[slot] = find(slot);
+            damageTaken[cluster[slot] * Constants.MAX_PLAYERS + owner[slot]] += incomingDamage[slot];
+        }
+    }
+
+    /**
+     * Visits the enemy ships in range of a ship: counting them and joining clusters, or dealing the ship's damage.
+     *
+     * @return enemy ships in range
+     */
+    private int forEachEnemyInRange(final int slot, final boolean counting) {
+        final double[] x = store.getShipX();
+        final double[] y = store.getShipY();
+        final int[] owner = store.getShipOwner();
+        final double share = counting ? 0.0 : (double) Constants.WEAPON_DAMAGE / targetCount[slot];
+
+        final int cell = cellOfShip[slot];
+        final int column = cell % columns;
+        final int row = cell / columns;
+        int found = 0;
+        for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); ++r) {
+            for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); ++c) {
+                final int neighborCell = r * columns + c;
+                for (int k = cellStart[neighborCell]; k < cellStart[neighborCell + 1]; ++k) {
+                    final int other = cellItems[k];
+                    if (owner[other] == owner[slot]) {
+                        continue;
+                    }
+                    final double dx = x[other] - x[slot];
+                    final double dy = y[other] - y[slot];
+                    if (dx * dx + dy * dy > rangeSquared) {
+                        continue;
+                    }
+                    ++found;
+                    if (counting) {
+                        union(slot, other);
+                    } else {
+                        incomingDamage[other] += share;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the ship's rating for next turn; ships not on the map at the last update are safe
+     */
+    public Outcome getOutcome(final Ship ship) {
+        final int slot = slotOf(ship);
+        if (slot < 0 || incomingDamage[slot] == 0.0) {
+            return Outcome.SAFE;
+        }
+        if (getForecastHealth(slot) <= 0 || balance(slot) < 0.0) {
+            return Outcome.LOSING;
+        }
+        return Outcome.WINNING;
+    }
+
+    /**
+     * @return damage the ship's side deals minus what it takes in the ship's cluster next turn; positive when
+     * ahead, 0 for a ship out of every fight
+     */
+    public double getScore(final Ship ship) {
+        final int slot = slotOf(ship);
+        return slot < 0 ? 0.0 : balance(slot);
+    }
+
+    /**
+     * @return damage the ship would take next turn
+     */
+    public double getIncomingDamage(final Ship ship) {
+        final int slot = slotOf(ship);
+        return slot < 0 ? 0.0 : incomingDamage[slot];
+    }
+
+    /**
+     * @return health the ship would have left after next turn's fire, at most its current health
+     */
+    public int getForecastHealth(final Ship ship) {
+        final int slot = slotOf(ship);
+        return slot < 0 ? ship.getHealth() : getForecastHealth(slot);
+    }
+
+    private int getForecastHealth(final int slot) {
+        // The engine truncates each ship's total damage.
+        return store.getShipHealth()[slot] - (int) incomingDamage[slot];
+    }
+
+    private double balance(final int slot) {
+        final int index = cluster[slot] * Constants.MAX_PLAYERS + store.getShipOwner()[slot];
+        return damageDealt[index] - damageTaken[index];
+    }
+
+    private int slotOf(final Ship ship) {
+        if (store == null) {
+            return -1;
+        }
+        final int slot = store.getShipSlot(ship.getId());
+        return slot >= 0 && slot < shipCount && store.getShip(slot) == ship ? slot : -1;
+    }
+
+    private void bucket(final int width, final int height) {
+        columns = Math.max(1, (int) Math.ceil(width / range));
+        rows = Math.max(1, (int) Math.ceil(height / range));
+        final int cells = columns * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+        }
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+
+        final double[] x = store.getShipX();
+        final double[] y = store.getShipY();
+        for (int slot = 0; slot < shipCount; ++slot) {
+            final int column = Math.max(0, Math.min(columns - 1, (int) (x[slot] / range)));
+            final int row = Math.max(0, Math.min(rows - 1, (int) (y[slot] / range)));
+            cellOfShip[slot] = row * columns + column;
+            ++cellStart[cellOfShip[slot]];
+        }
+        // Running totals put each cell's end in cellStart; filling each cell from its end leaves its start there.
+        for (int cell = 1; cell < cells; ++cell) {
+            cellStart[cell] += cellStart[cell - 1];
+        }
+        cellStart[cells] = shipCount;
+        for (int slot = shipCount - 1; slot >= 0; --slot) {
+            cellItems[--cellStart[cellOfShip[slot]]] = slot;
+        }
+    }
+
+    private int find(int slot) {
+        while (cluster[slot] != slot) {
+            cluster[slot] = cluster[cluster[slot]];
+            slot = cluster[slot];
+        }
+        return slot;
+    }
+
+    private void union(final int a, final int b) {
+        final int rootA = find(a);
+        final int rootB = find(b);
+        if (rootA != rootB) {
+            cluster[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private void ensureCapacity(final int ships) {
+        if (targetCount.length >= ships) {
+            return;
+        }
+        final int capacity = Math.max(ships, targetCount.length * 2);
+        targetCount = new int[capacity];
+        incomingDamage = new double[capacity];
+        cluster = new int[capacity];
+        cellItems = new int[capacity];
+        cellOfShip = new int[capacity];
+        damageDealt = new double[capacity * Constants.MAX_PLAYERS];
+        damageTaken = new double[capacity * Constants.MAX_PLAYERS];
+    }
+}
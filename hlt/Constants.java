@@ -41,6 +41,9 @@ public class Constants {
     /** Number of production units per turn contributed by each docked ship */
     public static final int BASE_PRODUCTIVITY = 6;
 
+    /** Production units a planet spends to create a new ship */
+    public static final int PRODUCTION_PER_SHIP = 72;
+
     /** Distance from the planets edge at which new ships are created */
     public static final double SPAWN_RADIUS = 2.0;
 
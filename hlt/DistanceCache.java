@@ -0,0 +1,131 @@
+package hlt;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Turn-scoped cache of squared distances between ships, and between planets and ships.
+ *
+ * Entries are indexed by {@link EntityStore} slots and filled lazily, a row at a time: the first lookup from a ship
+ * or planet in a turn computes its distances to every ship. {@link #clear()} invalidates everything in O(1) by
+ * bumping a turn stamp. Each row is its own array, allocated the first time it is filled and replaced only when
+ * the fleet outgrows it, so memory follows the rows actually read rather than the square of the ship count.
+ *
+ * Lookups are safe from many threads between clears. A thread claims a stale row by swapping its stamp to
+ * "filling", writes the row, then publishes it by setting the current stamp; others only read a row once they see
+ * that stamp, and compute their distance directly while someone else is filling it.
+ */
+public class DistanceCache {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final EntityStore store;
+    private int turnStamp = 1;
+
+    // ship x ship, one row per ship slot, null until first filled
+    private double[][] shipDistances = new double[INITIAL_CAPACITY][];
+    // turnStamp once a row is filled this turn, -turnStamp while a thread is filling it
+    private AtomicIntegerArray shipRowStamp = new AtomicIntegerArray(INITIAL_CAPACITY);
+
+    // planet x ship, same layout
+    private double[][] planetDistances = new double[INITIAL_CAPACITY][];
+    private AtomicIntegerArray planetRowStamp = new AtomicIntegerArray(INITIAL_CAPACITY);
+
+    public DistanceCache(final EntityStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Invalidates every row. Not thread safe: call it between turns, never during lookups.
+     */
+    void clear() {
+        ++turnStamp;
+
+        // Only the row tables grow here; the rows themselves grow when they are next filled. Fresh stamps are 0,
+        // which is stale for every turn.
+        final int ships = store.getShipCount();
+        if (ships > shipDistances.length) {
+            final int rows = Math.max(ships, shipDistances.length * 2);
+            shipDistances = Arrays.copyOf(shipDistances, rows);
+            shipRowStamp = new AtomicIntegerArray(rows);
+        }
+        final int planets = store.getPlanetCount();
+        if (planets > planetDistances.length) {
+            final int rows = Math.max(planets, planetDistances.length * 2);
+            planetDistances = Arrays.copyOf(planetDistances, rows);
+            planetRowStamp = new AtomicIntegerArray(rows);
+        }
+    }
+
+    public double shipToShipSquared(final int shipSlot, final int otherShipSlot) {
+        final int stamp = shipRowStamp.get(shipSlot);
+        if (stamp == turnStamp || (stamp != -turnStamp && claimShipRow(shipSlot, stamp))) {
+            return shipDistances[shipSlot][otherShipSlot];
+        }
+
+        final double[] x = store.getShipX();
+        final double[] y = store.getShipY();
+        final double dx = x[shipSlot] - x[otherShipSlot];
+        final double dy = y[shipSlot] - y[otherShipSlot];
+        return dx * dx + dy * dy;
+    }
+
+    public double planetToShipSquared(final int planetSlot, final int shipSlot) {
+        final int stamp = planetRowStamp.get(planetSlot);
+        if (stamp == turnStamp || (stamp != -turnStamp && claimPlanetRow(planetSlot, stamp))) {
+            return planetDistances[planetSlot][shipSlot];
+        }
+
+        final double dx = store.getPlanetX()[planetSlot] - store.getShipX()[shipSlot];
+        final double dy = store.getPlanetY()[planetSlot] - store.getShipY()[shipSlot];
+        return dx * dx + dy * dy;
+    }
+
+    public double getDistance(final Ship ship, final Ship otherShip) {
+        return Math.sqrt(shipToShipSquared(store.getShipSlot(ship.getId()), store.getShipSlot(otherShip.getId())));
+    }
+
+    public double getDistance(final Planet planet, final Ship ship) {
+        return Math.sqrt(planetToShipSquared(store.getPlanetSlot(planet.getId()), store.getShipSlot(ship.getId())));
+    }
+
+    /**
+     * @return true once the row is filled by this thread; false if another thread claimed it first
+     */
+    private boolean claimShipRow(final int shipSlot, final int staleStamp) {
+        if (!shipRowStamp.compareAndSet(shipSlot, staleStamp, -turnStamp)) {
+            return false;
+        }
+        shipDistances[shipSlot] = fillRow(shipDistances[shipSlot], store.getShipX()[shipSlot],
+                store.getShipY()[shipSlot]);
+        shipRowStamp.set(shipSlot, turnStamp);
+        return true;
+    }
+
+    private boolean claimPlanetRow(final int planetSlot, final int staleStamp) {
+        if (!planetRowStamp.compareAndSet(planetSlot, staleStamp, -turnStamp)) {
+            return false;
+        }
+        planetDistances[planetSlot] = fillRow(planetDistances[planetSlot], store.getPlanetX()[planetSlot],
+                store.getPlanetY()[planetSlot]);
+        planetRowStamp.set(planetSlot, turnStamp);
+        return true;
+    }
+
+    /**
+     * @return row, or a new one with room for half as many ships again if the fleet has outgrown it, holding the
+     * squared distance from the given point to every ship
+     */
+    private double[] fillRow(final double[] row, final double fromX, final double fromY) {
+        final double[] x = store.getShipX();
+        final double[] y = store.getShipY();
+        final int ships = store.getShipCount();
+        final double[] distances = row != null && row.length >= ships ? row : new double[ships + ships / 2];
+        for (int b = 0; b < ships; ++b) {
+            final double dx = fromX - x[b];
+            final double dy = fromY - y[b];
+            distances[b] = dx * dx + dy * dy;
+        }
+        return distances;
+    }
+}
@@ -2,11 +2,14 @@ package hlt;
 
 public class Entity extends Position {
 
-    private final int owner;
+    private int owner;
     private final int id;
-    private final int health;
+    private int health;
     private final double radius;
 
+    // stamp of the last GameMap update that reported this entity, used to detect destroyed entities
+    int lastSeenUpdate;
+
     public Entity(final int owner, final int id, final double xPos, final double yPos, final int health, final double radius) {
         super(xPos, yPos);
         this.owner = owner;
@@ -15,6 +18,12 @@ public class Entity extends Position {
         this.radius = radius;
     }
 
+    void updateEntity(final int owner, final double xPos, final double yPos, final int health) {
+        setPosition(xPos, yPos);
+        this.owner = owner;
+        this.health = health;
+    }
+
     public int getOwner() {
         return owner;
     }
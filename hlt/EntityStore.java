@@ -0,0 +1,217 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Column-oriented copy of the current ships and planets.
+ *
+ * Each entity gets a slot, and its state lives at that slot in parallel primitive arrays so hot loops
+ * (distance ranking, collision checks) can scan contiguous memory instead of chasing Ship and Planet objects.
+ * Slots are handed out in the order entities are parsed, so ship slots match {@link GameMap#getAllShips()}.
+ * The arrays only grow, so they are usually longer than the entity counts.
+ */
+public class EntityStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int shipCount;
+    private double[] shipX = new double[INITIAL_CAPACITY];
+    private double[] shipY = new double[INITIAL_CAPACITY];
+    private int[] shipId = new int[INITIAL_CAPACITY];
+    private int[] shipHealth = new int[INITIAL_CAPACITY];
+    private int[] shipOwner = new int[INITIAL_CAPACITY];
+    private int[] shipDockStatus = new int[INITIAL_CAPACITY];
+    private int[] shipCooldown = new int[INITIAL_CAPACITY];
+    private Ship[] ships = new Ship[INITIAL_CAPACITY];
+    private int[] shipSlotById = newSlotTable(INITIAL_CAPACITY);
+
+    private int planetCount;
+    private double[] planetX = new double[INITIAL_CAPACITY];
+    private double[] planetY = new double[INITIAL_CAPACITY];
+    private double[] planetRadius = new double[INITIAL_CAPACITY];
+    private int[] planetId = new int[INITIAL_CAPACITY];
+    private int[] planetHealth = new int[INITIAL_CAPACITY];
+    private int[] planetOwner = new int[INITIAL_CAPACITY];
+    private int[] planetDockingSpots = new int[INITIAL_CAPACITY];
+    private int[] planetDockedCount = new int[INITIAL_CAPACITY];
+    private Planet[] planets = new Planet[INITIAL_CAPACITY];
+    private int[] planetSlotById = newSlotTable(INITIAL_CAPACITY);
+
+    void clear() {
+        for (int slot = 0; slot < shipCount; ++slot) {
+            shipSlotById[shipId[slot]] = -1;
+            ships[slot] = null;
+        }
+        for (int slot = 0; slot < planetCount; ++slot) {
+            planetSlotById[planetId[slot]] = -1;
+            planets[slot] = null;
+        }
+        shipCount = 0;
+        planetCount = 0;
+    }
+
+    void addShip(final Ship ship) {
+        if (shipCount == shipX.length) {
+            final int capacity = shipCount * 2;
+            shipX = Arrays.copyOf(shipX, capacity);
+            shipY = Arrays.copyOf(shipY, capacity);
+            shipId = Arrays.copyOf(shipId, capacity);
+            shipHealth = Arrays.copyOf(shipHealth, capacity);
+            shipOwner = Arrays.copyOf(shipOwner, capacity);
+            shipDockStatus = Arrays.copyOf(shipDockStatus, capacity);
+            shipCooldown = Arrays.copyOf(shipCooldown, capacity);
+            ships = Arrays.copyOf(ships, capacity);
+        }
+        final int slot = shipCount++;
+        shipX[slot] = ship.getXPos();
+        shipY[slot] = ship.getYPos();
+        shipId[slot] = ship.getId();
+        shipHealth[slot] = ship.getHealth();
+        shipOwner[slot] = ship.getOwner();
+        shipDockStatus[slot] = ship.getDockingStatus().ordinal();
+        shipCooldown[slot] = ship.getWeaponCooldown();
+        ships[slot] = ship;
+
+        shipSlotById = ensureSlotTable(shipSlotById, ship.getId());
+        shipSlotById[ship.getId()] = slot;
+    }
+
+    void addPlanet(final Planet planet) {
+        if (planetCount == planetX.length) {
+            final int capacity = planetCount * 2;
+            planetX = Arrays.copyOf(planetX, capacity);
+            planetY = Arrays.copyOf(planetY, capacity);
+            planetRadius = Arrays.copyOf(planetRadius, capacity);
+            planetId = Arrays.copyOf(planetId, capacity);
+            planetHealth = Arrays.copyOf(planetHealth, capacity);
+            planetOwner = Arrays.copyOf(planetOwner, capacity);
+            planetDockingSpots = Arrays.copyOf(planetDockingSpots, capacity);
+            planetDockedCount = Arrays.copyOf(planetDockedCount, capacity);
+            planets = Arrays.copyOf(planets, capacity);
+        }
+        final int slot = planetCount++;
+        planetX[slot] = planet.getXPos();
+        planetY[slot] = planet.getYPos();
+        planetRadius[slot] = planet.getRadius();
+        planetId[slot] = planet.getId();
+        planetHealth[slot] = planet.getHealth();
+        planetOwner[slot] = planet.getOwner();
+        planetDockingSpots[slot] = planet.getDockingSpots();
+        planetDockedCount[slot] = planet.getDockedShips().size();
+        planets[slot] = planet;
+
+        planetSlotById = ensureSlotTable(planetSlotById, planet.getId());
+        planetSlotById[planet.getId()] = slot;
+    }
+
+    private static int[] newSlotTable(final int capacity) {
+        final int[] table = new int[capacity];
+        Arrays.fill(table, -1);
+        return table;
+    }
+
+    private static int[] ensureSlotTable(final int[] table, final int id) {
+        if (id < table.length) {
+            return table;
+        }
+        final int[] grown = Arrays.copyOf(table, Math.max(id + 1, table.length * 2));
+        Arrays.fill(grown, table.length, grown.length, -1);
+        return grown;
+    }
+
+    public int getShipCount() {
+        return shipCount;
+    }
+
+    /**
+     * @return the slot of the ship with the given id, or -1 if no such ship is alive
+     */
+    public int getShipSlot(final int id) {
+        return id >= 0 && id < shipSlotById.length ? shipSlotById[id] : -1;
+    }
+
+    public Ship getShip(final int slot) {
+        return ships[slot];
+    }
+
+    public double[] getShipX() {
+        return shipX;
+    }
+
+    public double[] getShipY() {
+        return shipY;
+    }
+
+    public int[] getShipId() {
+        return shipId;
+    }
+
+    public int[] getShipHealth() {
+        return shipHealth;
+    }
+
+    public int[] getShipOwner() {
+        return shipOwner;
+    }
+
+    /**
+     * @return {@link Ship.DockingStatus} ordinals per slot
+     */
+    public int[] getShipDockStatus() {
+        return shipDockStatus;
+    }
+
+    public int[] getShipCooldown() {
+        return shipCooldown;
+    }
+
+    public int getPlanetCount() {
+        return planetCount;
+    }
+
+    /**
+     * @return the slot of the planet with the given id, or -1 if no such planet exists
+     */
+    public int getPlanetSlot(final int id) {
+        return id >= 0 && id < planetSlotById.length ? planetSlotById[id] : -1;
+    }
+
+    public Planet getPlanet(final int slot) {
+        return planets[slot];
+    }
+
+    public double[] getPlanetX() {
+        return planetX;
+    }
+
+    public double[] getPlanetY() {
+        return planetY;
+    }
+
+    public double[] getPlanetRadius() {
+        return planetRadius;
+    }
+
+    public int[] getPlanetId() {
+        return planetId;
+    }
+
+    public int[] getPlanetHealth() {
+        return planetHealth;
+    }
+
+    /**
+     * @return owner per slot, -1 for unowned planets
+     */
+    public int[] getPlanetOwner() {
+        return planetOwner;
+    }
+
+    public int[] getPlanetDockingSpots() {
+        return planetDockingSpots;
+    }
+
+    public int[] getPlanetDockedCount() {
+        return planetDockedCount;
+    }
+}
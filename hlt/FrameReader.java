@@ -0,0 +1,210 @@
+package hlt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads engine lines into a reusable byte buffer and decodes their tokens in place.
+ *
+ * Unlike {@link Metadata}, no String is created per token: integers and decimals are accumulated
+ * straight from the ASCII digits. The buffer grows to the largest line seen and is then reused.
+ *
+ * Given a channel, such as one over the process's stdin, the buffer is direct, so a read fills it straight from
+ * the file descriptor with no intermediate copy and no per-call locking. Given a stream, the buffer is on the heap.
+ */
+public class FrameReader implements TokenStream {
+
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    // Decimal mantissas below 2^53 divided by an exact power of ten round exactly like Double.parseDouble.
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ReadableByteChannel input;
+    private ByteBuffer buffer;
+
+    // bytes [0, limit) of the buffer hold data read from input
+    private int limit = 0;
+    // the current line is [0, lineEnd), and the next line starts after lineEnd
+    private int lineEnd = -1;
+    private int position = 0;
+
+    public FrameReader(final InputStream input) {
+        this.input = Channels.newChannel(input);
+        this.buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    }
+
+    public FrameReader(final ReadableByteChannel input) {
+        this.input = input;
+        this.buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+    }
+
+    /**
+     * Advances to the next line of input.
+     *
+     * @return false once the input is exhausted
+     */
+    public boolean readFrame() throws IOException {
+        // Drop the previous line so the buffer only holds the unread tail.
+        final int nextLineStart = Math.min(lineEnd + 1, limit);
+        if (nextLineStart > 0) {
+            buffer.limit(limit);
+            buffer.position(nextLineStart);
+            buffer.compact();
+            limit -= nextLineStart;
+        }
+
+        int scan = 0;
+        for (;;) {
+            for (; scan < limit; ++scan) {
+                if (buffer.get(scan) == '\n') {
+                    setLine(scan);
+                    return true;
+                }
+            }
+            if (limit == buffer.capacity()) {
+                grow();
+            }
+            buffer.limit(buffer.capacity());
+            buffer.position(limit);
+            final int read = input.read(buffer);
+            if (read < 0) {
+                if (limit == 0) {
+                    setLine(-1);
+                    return false;
+                }
+                setLine(limit);
+                return true;
+            }
+            limit += read;
+        }
+    }
+
+    private void grow() {
+        final ByteBuffer larger = buffer.isDirect()
+                ? ByteBuffer.allocateDirect(buffer.capacity() * 2)
+                : ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.limit(limit);
+        buffer.position(0);
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    private void setLine(final int end) {
+        lineEnd = end;
+        position = 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        skipWhitespace();
+        return position >= lineEnd;
+    }
+
+    @Override
+    public int nextInt() {
+        skipWhitespace();
+        final int start = position;
+        final boolean negative = position < lineEnd && buffer.get(position) == '-';
+        if (negative) {
+            ++position;
+        }
+
+        int value = 0;
+        final int digitsStart = position;
+        for (; position < lineEnd; ++position) {
+            final int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            value = value * 10 + digit;
+        }
+        if (position == digitsStart || !atTokenEnd()) {
+            throw new NumberFormatException("For input string: \"" + token(start) + "\"");
+        }
+
+        return negative ? -value : value;
+    }
+
+    @Override
+    public double nextDouble() {
+        skipWhitespace();
+        final int start = position;
+        final boolean negative = position < lineEnd && buffer.get(position) == '-';
+        if (negative) {
+            ++position;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        for (; position < lineEnd; ++position) {
+            final byte b = buffer.get(position);
+            if (b == '.' && !seenPoint) {
+                seenPoint = true;
+                continue;
+            }
+            final int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (mantissa < MAX_EXACT_MANTISSA) {
+                mantissa = mantissa * 10 + digit;
+            }
+            ++digits;
+            if (seenPoint) {
+                ++fractionDigits;
+            }
+        }
+
+        if (digits == 0 || !atTokenEnd() || mantissa >= MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+            // Exponents, very long mantissas and malformed input take the slow, allocating path.
+            skipToken();
+            return Double.parseDouble(token(start));
+        }
+
+        final double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private void skipWhitespace() {
+        while (position < lineEnd && isWhitespace(buffer.get(position))) {
+            ++position;
+        }
+    }
+
+    private void skipToken() {
+        while (position < lineEnd && !isWhitespace(buffer.get(position))) {
+            ++position;
+        }
+    }
+
+    private boolean atTokenEnd() {
+        return position >= lineEnd || isWhitespace(buffer.get(position));
+    }
+
+    private String token(final int start) {
+        int end = start;
+        while (end < lineEnd && !isWhitespace(buffer.get(end))) {
+            ++end;
+        }
+        final byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        // Carriage returns show up when feeding input by hand on windows.
+        return b == ' ' || b == '\r' || b == '\t';
+    }
+}
@@ -0,0 +1,30 @@
+package hlt;
+
+/**
+ * A bot's side of a game: where frames come from and where moves go.
+ *
+ * {@link Networking} talks to the Halite engine over standard input and output; {@code LocalConnection}, in the
+ * offline tools under {@code tools/}, talks to an in-process {@code Simulator}. A bot written against this
+ * interface runs unchanged on either.
+ */
+public interface GameConnection {
+
+    /**
+     * Reads our player id, the map size and the initial map, and reports the bot's name.
+     */
+    GameMap initialize(String botName);
+
+    /**
+     * Blocks until the next turn's frame arrives and loads it into map.
+     *
+     * @return false once the game is over; map is left as it was
+     */
+    boolean updateMap(GameMap map);
+
+    void sendMoves(Iterable<Move> moves);
+
+    /**
+     * @return the time budget of the current turn, restarted each time a new frame has been loaded
+     */
+    TurnBudget getTurnBudget();
+}
@@ -1,13 +1,15 @@
 package hlt;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.Collections;
-import java.util.Collection;
 
 public class GameMap {
+    private static final int OBJECTS_BETWEEN_CALLS = Instrumentation.counter("objectsBetween calls");
+
     private final int width, height;
     private final int playerId;
     private final List<Player> players;
@@ -15,9 +17,25 @@ public class GameMap {
     private final Map<Integer, Planet> planets;
     private final List<Ship> allShips;
     private final List<Ship> allShipsUnmodifiable;
+    private final SpatialIndex spatialIndex;
+    private final EntityStore entityStore;
+    private final DistanceCache distanceCache;
+    private final MoveReservations moveReservations;
+    private final PathCache pathCache;
+    private final ShipHistory shipHistory;
+
+    // mutable maps behind each Player's unmodifiable view, kept so incremental updates can edit them in place
+    private final List<Map<Integer, Ship>> shipsByPlayer;
+    private final List<Ship> createdShips;
+    private final List<Ship> destroyedShips;
+    private final List<Planet> destroyedPlanets;
+    private boolean incrementalUpdates = false;
+    private int updateStamp = 0;
 
     // used only during parsing to reduce memory allocations
     private final List<Ship> currentShips = new ArrayList<>();
+    // used only during neighbor queries to reduce memory allocations; per thread so queries may run concurrently
+    private final ThreadLocal<List<Entity>> queryCandidates = ThreadLocal.withInitial(ArrayList::new);
 
     public GameMap(final int width, final int height, final int playerId) {
         this.width = width;
@@ -28,6 +46,49 @@ public class GameMap {
         planets = new TreeMap<>();
         allShips = new ArrayList<>();
         allShipsUnmodifiable = Collections.unmodifiableList(allShips);
+        spatialIndex = new SpatialIndex(width, height);
+        entityStore = new EntityStore();
+        distanceCache = new DistanceCache(entityStore);
+        moveReservations = new MoveReservations();
+        pathCache = new PathCache();
+        shipHistory = new ShipHistory(width, height);
+        shipsByPlayer = new ArrayList<>(Constants.MAX_PLAYERS);
+        createdShips = new ArrayList<>();
+        destroyedShips = new ArrayList<>();
+        destroyedPlanets = new ArrayList<>();
+    }
+
+    /**
+     * In incremental mode, {@link #updateMap(TokenStream)} keeps the same Player, Ship and Planet objects from
+     * turn to turn (keyed by owner and id) and updates their state in place, instead of rebuilding everything.
+     */
+    public void setIncrementalUpdates(final boolean incrementalUpdates) {
+        this.incrementalUpdates = incrementalUpdates;
+    }
+
+    public boolean isIncrementalUpdates() {
+        return incrementalUpdates;
+    }
+
+    /**
+     * @return ships that appeared in the last incremental update; empty in rebuild mode
+     */
+    public List<Ship> getCreatedShips() {
+        return createdShips;
+    }
+
+    /**
+     * @return ships that disappeared in the last incremental update, with their last known state
+     */
+    public List<Ship> getDestroyedShips() {
+        return destroyedShips;
+    }
+
+    /**
+     * @return planets that disappeared in the last incremental update, with their last known state
+     */
+    public List<Planet> getDestroyedPlanets() {
+        return destroyedPlanets;
     }
 
     public int getHeight() {
@@ -66,27 +127,57 @@ public class GameMap {
         return allShipsUnmodifiable;
     }
 
+    /**
+     * @return the current ships and planets laid out in primitive columns
+     */
+    public EntityStore getEntityStore() {
+        return entityStore;
+    }
+
+    /**
+     * @return the distance cache for the current turn, cleared on every update and safe to read from many threads
+     * until the next one
+     */
+    public DistanceCache getDistanceCache() {
+        return distanceCache;
+    }
+
+    /**
+     * @return the moves committed so far this turn, cleared on every update
+     */
+    public MoveReservations getMoveReservations() {
+        return moveReservations;
+    }
+
+    /**
+     * @return planets known to block flights to each planet; kept across turns, minus routes via destroyed planets
+     */
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
+    /**
+     * @return the last positions of every ship, kept across turns
+     */
+    public ShipHistory getShipHistory() {
+        return shipHistory;
+    }
+
     public ArrayList<Entity> objectsBetween(Position start, Position target) {
         final ArrayList<Entity> entitiesFound = new ArrayList<>();
 
-        addEntitiesBetween(entitiesFound, start, target, planets.values());
-        addEntitiesBetween(entitiesFound, start, target, allShips);
+        Instrumentation.count(OBJECTS_BETWEEN_CALLS);
+        spatialIndex.entitiesBetween(start, target, Constants.FORECAST_FUDGE_FACTOR, entitiesFound);
 
         return entitiesFound;
     }
 
-    private static void addEntitiesBetween(final List<Entity> entitiesFound,
-                                           final Position start, final Position target,
-                                           final Collection<? extends Entity> entitiesToCheck) {
-
-        for (final Entity entity : entitiesToCheck) {
-            if (entity.equals(start) || entity.equals(target)) {
-                continue;
-            }
-            if (Collision.segmentCircleIntersect(start, target, entity, Constants.FORECAST_FUDGE_FACTOR)) {
-                entitiesFound.add(entity);
-            }
-        }
+    /**
+     * Same as {@link #objectsBetween(Position, Position)}, appending to the given list instead of allocating one.
+     */
+    public void objectsBetween(final Position start, final Position target, final List<Entity> output) {
+        Instrumentation.count(OBJECTS_BETWEEN_CALLS);
+        spatialIndex.entitiesBetween(start, target, Constants.FORECAST_FUDGE_FACTOR, output);
     }
 
     public Map<Double, Entity> nearbyEntitiesByDistance(final Entity entity) {
@@ -109,10 +200,171 @@ public class GameMap {
         return entityByDistance;
     }
 
-    public GameMap updateMap(final Metadata mapMetadata) {
+    public Map<Double, Entity> nearbyEntitiesByDistance(final Entity entity, final double radius) {
+        final Map<Double, Entity> entityByDistance = new TreeMap<>();
+        final List<Entity> entitiesFound = new ArrayList<>();
+
+        spatialIndex.entitiesWithinRadius(entity.getXPos(), entity.getYPos(), radius, entity, entitiesFound);
+        for (final Entity nearbyEntity : entitiesFound) {
+            entityByDistance.put(entity.getDistanceTo(nearbyEntity), nearbyEntity);
+        }
+
+        return entityByDistance;
+    }
+
+    /**
+     * Finds the k entities nearest to origin that pass the filter, sorted by distance. The origin itself is skipped
+     * when it is an entity.
+     */
+    public NeighborBuffer nearest(final Position origin, final int k, final NeighborFilter filter,
+                                  final NeighborBuffer output) {
+        output.reset(entityStore);
+        final double x = origin.getXPos();
+        final double y = origin.getYPos();
+        final int originSlot = shipSlotOf(origin);
+
+        if (filter.acceptsPlanets()) {
+            final double[] planetX = entityStore.getPlanetX();
+            final double[] planetY = entityStore.getPlanetY();
+            final int[] planetOwner = entityStore.getPlanetOwner();
+            for (int slot = 0; slot < entityStore.getPlanetCount(); ++slot) {
+                if (!filter.acceptsOwner(planetOwner[slot]) || entityStore.getPlanet(slot) == origin) {
+                    continue;
+                }
+                if (originSlot >= 0) {
+                    output.add(slot, true, distanceCache.planetToShipSquared(slot, originSlot));
+                    continue;
+                }
+                final double dx = planetX[slot] - x;
+                final double dy = planetY[slot] - y;
+                output.add(slot, true, dx * dx + dy * dy);
+            }
+        }
+
+        if (filter.acceptsShips()) {
+            final double[] shipX = entityStore.getShipX();
+            final double[] shipY = entityStore.getShipY();
+            final int[] shipOwner = entityStore.getShipOwner();
+            final int[] shipDockStatus = entityStore.getShipDockStatus();
+            for (int slot = 0; slot < entityStore.getShipCount(); ++slot) {
+                if (!filter.acceptsOwner(shipOwner[slot]) || !filter.acceptsDockingStatus(shipDockStatus[slot])
+                        || entityStore.getShip(slot) == origin) {
+                    continue;
+                }
+                if (originSlot >= 0) {
+                    output.add(slot, false, distanceCache.shipToShipSquared(originSlot, slot));
+                    continue;
+                }
+                final double dx = shipX[slot] - x;
+                final double dy = shipY[slot] - y;
+                output.add(slot, false, dx * dx + dy * dy);
+            }
+        }
+
+        output.keepNearest(k);
+        return output;
+    }
+
+    /**
+     * Finds up to k entities passing the filter whose distance d to origin satisfies minDistance < d <= maxDistance,
+     * nearest first. Only the spatial index cells within maxDistance are read. The origin itself is skipped when it
+     * is an entity.
+     */
+    public NeighborBuffer withinRange(final Position origin, final double minDistance, final double maxDistance,
+                                      final int k, final NeighborFilter filter, final NeighborBuffer output) {
+        output.reset(entityStore);
+        final double x = origin.getXPos();
+        final double y = origin.getYPos();
+        final double minDistanceSquared = minDistance < 0 ? -1.0 : minDistance * minDistance;
+        final int originSlot = shipSlotOf(origin);
+
+        final List<Entity> candidates = queryCandidates.get();
+        candidates.clear();
+        spatialIndex.entitiesWithinRadius(x, y, maxDistance, null, candidates);
+
+        for (final Entity candidate : candidates) {
+            if (candidate == origin || !filter.acceptsOwner(candidate.getOwner())) {
+                continue;
+            }
+            final int slot;
+            final boolean planet = candidate instanceof Planet;
+            if (planet) {
+                if (!filter.acceptsPlanets()) {
+                    continue;
+                }
+                slot = entityStore.getPlanetSlot(candidate.getId());
+            } else {
+                if (!filter.acceptsShips()
+                        || !filter.acceptsDockingStatus(((Ship) candidate).getDockingStatus().ordinal())) {
+                    continue;
+                }
+                slot = entityStore.getShipSlot(candidate.getId());
+            }
+            final double distanceSquared;
+            if (originSlot >= 0) {
+                distanceSquared = planet
+                        ? distanceCache.planetToShipSquared(slot, originSlot)
+                        : distanceCache.shipToShipSquared(originSlot, slot);
+            } else {
+                final double dx = candidate.getXPos() - x;
+                final double dy = candidate.getYPos() - y;
+                distanceSquared = dx * dx + dy * dy;
+            }
+            if (distanceSquared > minDistanceSquared) {
+                output.add(slot, planet, distanceSquared);
+            }
+        }
+
+        output.keepNearest(k);
+        return output;
+    }
+
+    /**
+     * Finds up to k entities passing the filter within the given radius of origin, nearest first.
+     */
+    public NeighborBuffer withinRadius(final Position origin, final double radius, final int k,
+                                       final NeighborFilter filter, final NeighborBuffer output) {
+        return withinRange(origin, -1.0, radius, k, filter, output);
+    }
+
+    private int shipSlotOf(final Position position) {
+        if (!(position instanceof Ship)) {
+            return -1;
+        }
+        final int slot = entityStore.getShipSlot(((Ship) position).getId());
+        return slot >= 0 && entityStore.getShip(slot) == position ? slot : -1;
+    }
+
+    public GameMap updateMap(final TokenStream mapMetadata) {
+        createdShips.clear();
+        destroyedShips.clear();
+        destroyedPlanets.clear();
+        entityStore.clear();
+
+        if (incrementalUpdates) {
+            updateInPlace(mapMetadata);
+        } else {
+            rebuild(mapMetadata);
+        }
+
+        if (!mapMetadata.isEmpty()) {
+            throw new IllegalStateException("Failed to parse data from Halite game engine. Please contact maintainers.");
+        }
+
+        distanceCache.clear();
+        moveReservations.clear();
+        pathCache.removePlanets(destroyedPlanets);
+        shipHistory.record(allShips, destroyedShips);
+        spatialIndex.rebuild(planets.values(), allShips);
+
+        return this;
+    }
+
+    private void rebuild(final TokenStream mapMetadata) {
         final int numberOfPlayers = MetadataParser.parsePlayerNum(mapMetadata);
 
         players.clear();
+        shipsByPlayer.clear();
         planets.clear();
         allShips.clear();
 
@@ -128,22 +380,85 @@ public class GameMap {
 
             for (final Ship ship : currentShips) {
                 currentPlayerShips.put(ship.getId(), ship);
+                entityStore.addShip(ship);
             }
             players.add(currentPlayer);
+            shipsByPlayer.add(currentPlayerShips);
         }
 
-        final int numberOfPlanets = Integer.parseInt(mapMetadata.pop());
+        final int numberOfPlanets = mapMetadata.nextInt();
 
         for (int i = 0; i < numberOfPlanets; ++i) {
             final List<Integer> dockedShips = new ArrayList<>();
             final Planet planet = MetadataParser.newPlanetFromMetadata(dockedShips, mapMetadata);
             planets.put(planet.getId(), planet);
+            entityStore.addPlanet(planet);
         }
+    }
 
-        if (!mapMetadata.isEmpty()) {
-            throw new IllegalStateException("Failed to parse data from Halite game engine. Please contact maintainers.");
+    private void updateInPlace(final TokenStream mapMetadata) {
+        final int stamp = ++updateStamp;
+        final int numberOfPlayers = MetadataParser.parsePlayerNum(mapMetadata);
+
+        allShips.clear();
+
+        for (int i = 0; i < numberOfPlayers; ++i) {
+            final int playerId = MetadataParser.parsePlayerId(mapMetadata);
+            if (i == players.size()) {
+                final Map<Integer, Ship> currentPlayerShips = new TreeMap<>();
+                players.add(new Player(playerId, currentPlayerShips));
+                shipsByPlayer.add(currentPlayerShips);
+            }
+            final Map<Integer, Ship> currentPlayerShips = shipsByPlayer.get(i);
+
+            final int numberOfShips = mapMetadata.nextInt();
+            for (int k = 0; k < numberOfShips; ++k) {
+                final int shipId = MetadataParser.parseEntityId(mapMetadata);
+                Ship ship = currentPlayerShips.get(shipId);
+                if (ship == null) {
+                    ship = MetadataParser.newShipFromMetadata(playerId, shipId, mapMetadata);
+                    currentPlayerShips.put(shipId, ship);
+                    createdShips.add(ship);
+                } else {
+                    MetadataParser.updateShipFromMetadata(ship, mapMetadata);
+                }
+                ship.lastSeenUpdate = stamp;
+                allShips.add(ship);
+                entityStore.addShip(ship);
+            }
+
+            final Iterator<Ship> existingShips = currentPlayerShips.values().iterator();
+            while (existingShips.hasNext()) {
+                final Ship ship = existingShips.next();
+                if (ship.lastSeenUpdate != stamp) {
+                    existingShips.remove();
+                    destroyedShips.add(ship);
+                }
+            }
         }
 
-        return this;
+        final int numberOfPlanets = mapMetadata.nextInt();
+
+        for (int i = 0; i < numberOfPlanets; ++i) {
+            final int planetId = MetadataParser.parseEntityId(mapMetadata);
+            Planet planet = planets.get(planetId);
+            if (planet == null) {
+                planet = MetadataParser.newPlanetFromMetadata(planetId, new ArrayList<Integer>(), mapMetadata);
+                planets.put(planetId, planet);
+            } else {
+                MetadataParser.updatePlanetFromMetadata(planet, mapMetadata);
+            }
+            planet.lastSeenUpdate = stamp;
+            entityStore.addPlanet(planet);
+        }
+
+        final Iterator<Planet> existingPlanets = planets.values().iterator();
+        while (existingPlanets.hasNext()) {
+            final Planet planet = existingPlanets.next();
+            if (planet.lastSeenUpdate != stamp) {
+                existingPlanets.remove();
+                destroyedPlanets.add(planet);
+            }
+        }
     }
 }
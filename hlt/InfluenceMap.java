@@ -0,0 +1,236 @@
+package hlt;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Low-resolution fields over the map: enemy threat, our strength and the value of planets we can still dock on.
+ *
+ * Each field is a float grid with one value per cell center, in one reusable array. Ships and planets are
+ * splatted into it with a kernel that is flat out to a core radius and falls off linearly to an outer radius; a
+ * ship's core is its firing range and its outer radius adds a turn of travel, so threat at a point is the damage
+ * enemy ships could bring there next turn. After that, a position's value is an O(1) bilinear lookup, see
+ * {@link #sample(Layer, double, double)}.
+ *
+ * Updates are incremental: an entity whose splat has not changed since last turn, such as a docked ship or a
+ * planet with the same owner and docked count, is left alone, and the others are taken out where they were and
+ * added where they are. Float rounding of these adds and subtracts is cleared by rebuilding from scratch every
+ * {@link #REBUILD_INTERVAL} updates.
+ */
+public class InfluenceMap {
+
+    public enum Layer { THREAT, STRENGTH, PLANET_VALUE }
+
+    public static final double DEFAULT_CELL_SIZE = 4.0;
+
+    /** Updates between full rebuilds */
+    public static final int REBUILD_INTERVAL = 32;
+
+    private static final double SHIP_CORE_RADIUS = CombatForecast.FIRING_RANGE;
+    private static final double SHIP_OUTER_RADIUS = CombatForecast.FIRING_RANGE + Constants.MAX_SPEED;
+    // Planet value reaches as far as a ship flies in this many turns beyond the docking ring.
+    private static final int PLANET_VALUE_TURNS = 3;
+
+    private static final int NONE = -1;
+
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int layerSize;
+    private final float[] grid;
+
+    // last splat of each ship by id: layer (or NONE), position
+    private int[] shipLayer = new int[0];
+    private double[] shipX = new double[0];
+    private double[] shipY = new double[0];
+    // scratch for full updates: whether each id is on the map this turn
+    private boolean[] shipPresent = new boolean[0];
+
+    // last splat of each planet by id: value (0 for none); planets never move
+    private float[] planetWeight = new float[0];
+
+    private int updates = 0;
+
+    public InfluenceMap(final int width, final int height) {
+        this(width, height, DEFAULT_CELL_SIZE);
+    }
+
+    public InfluenceMap(final int width, final int height, final double cellSize) {
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.layerSize = columns * rows;
+        this.grid = new float[layerSize * Layer.values().length];
+    }
+
+    /**
+     * Brings the fields up to date with the map's current turn, as seen by the map's player.
+     */
+    public void update(final GameMap gameMap) {
+        if (updates++ % REBUILD_INTERVAL == 0) {
+            Arrays.fill(grid, 0.0f);
+            Arrays.fill(shipLayer, NONE);
+            Arrays.fill(planetWeight, 0.0f);
+        }
+        final int me = gameMap.getMyPlayerId();
+
+        // Take out ships that are gone; the rest are compared with their last splat below.
+        final List<Ship> destroyedShips = gameMap.getDestroyedShips();
+        for (int i = 0; i < destroyedShips.size(); ++i) {
+            moveShip(destroyedShips.get(i).getId(), NONE, 0.0, 0.0);
+        }
+        if (!gameMap.isIncrementalUpdates()) {
+            // Without the destroyed list, find the missing ships by elimination.
+            Arrays.fill(shipPresent, false);
+            for (final Ship ship : gameMap.getAllShips()) {
+                if (ship.getId() < shipPresent.length) {
+                    shipPresent[ship.getId()] = true;
+                }
+            }
+            for (int id = 0; id < shipLayer.length; ++id) {
+                if (!shipPresent[id]) {
+                    moveShip(id, NONE, 0.0, 0.0);
+                }
+            }
+        }
+
+        for (final Ship ship : gameMap.getAllShips()) {
+            final int layer;
+            if (ship.getDockingStatus() != Ship.DockingStatus.Undocked) {
+                // Docked ships do not fire.
+                layer = NONE;
+            } else {
+                layer = ship.getOwner() == me ? Layer.STRENGTH.ordinal() : Layer.THREAT.ordinal();
+            }
+            moveShip(ship.getId(), layer, ship.getXPos(), ship.getYPos());
+        }
+
+        final List<Planet> destroyedPlanets = gameMap.getDestroyedPlanets();
+        for (int i = 0; i < destroyedPlanets.size(); ++i) {
+            setPlanetWeight(destroyedPlanets.get(i), 0.0f);
+        }
+        for (final Planet planet : gameMap.getAllPlanets().values()) {
+            setPlanetWeight(planet, planetValue(planet, me));
+        }
+    }
+
+    /**
+     * @return free docking spots the player could still take on the planet
+     */
+    private static float planetValue(final Planet planet, final int player) {
+        if (planet.isOwned() && planet.getOwner() != player) {
+            return 0.0f;
+        }
+        return planet.getDockingSpots() - planet.getDockedShips().size();
+    }
+
+    private void moveShip(final int id, final int layer, final double x, final double y) {
+        if (id >= shipLayer.length) {
+            if (layer == NONE) {
+                return;
+            }
+            final int capacity = Math.max(id + 1, shipLayer.length * 2);
+            final int oldLength = shipLayer.length;
+            shipLayer = Arrays.copyOf(shipLayer, capacity);
+            shipX = Arrays.copyOf(shipX, capacity);
+            shipY = Arrays.copyOf(shipY, capacity);
+            shipPresent = new boolean[capacity];
+            Arrays.fill(shipLayer, oldLength, capacity, NONE);
+        }
+        if (shipLayer[id] == layer && (layer == NONE || (shipX[id] == x && shipY[id] == y))) {
+            return;
+        }
+        if (shipLayer[id] != NONE) {
+            splat(shipLayer[id], shipX[id], shipY[id], SHIP_CORE_RADIUS, SHIP_OUTER_RADIUS,
+                    -Constants.WEAPON_DAMAGE);
+        }
+        if (layer != NONE) {
+            splat(layer, x, y, SHIP_CORE_RADIUS, SHIP_OUTER_RADIUS, Constants.WEAPON_DAMAGE);
+        }
+        shipLayer[id] = layer;
+        shipX[id] = x;
+        shipY[id] = y;
+    }
+
+    private void setPlanetWeight(final Planet planet, final float weight) {
+        final int id = planet.getId();
+        if (id >= planetWeight.length) {
+            planetWeight = Arrays.copyOf(planetWeight, Math.max(id + 1, planetWeight.length * 2));
+        }
+        if (planetWeight[id] == weight) {
+            return;
+        }
+        final double core = planet.getRadius() + Constants.DOCK_RADIUS;
+        final double outer = core + PLANET_VALUE_TURNS * Constants.MAX_SPEED;
+        splat(Layer.PLANET_VALUE.ordinal(), planet.getXPos(), planet.getYPos(), core, outer,
+                weight - planetWeight[id]);
+        planetWeight[id] = weight;
+    }
+
+    /**
+     * Adds weight to every cell center within core of (x, y), falling off linearly to nothing at outer.
+     */
+    private void splat(final int layer, final double x, final double y, final double core, final double outer,
+                       final double weight) {
+        final int offset = layer * layerSize;
+        final int minColumn = Math.max(0, (int) Math.floor((x - outer) / cellSize - 0.5));
+        final int maxColumn = Math.min(columns - 1, (int) Math.ceil((x + outer) / cellSize - 0.5));
+        final int minRow = Math.max(0, (int) Math.floor((y - outer) / cellSize - 0.5));
+        final int maxRow = Math.min(rows - 1, (int) Math.ceil((y + outer) / cellSize - 0.5));
+        final double outerSquared = outer * outer;
+        final double falloff = outer - core;
+
+        for (int row = minRow; row <= maxRow; ++row) {
+            final double dy = (row + 0.5) * cellSize - y;
+            for (int column = minColumn; column <= maxColumn; ++column) {
+                final double dx = (column + 0.5) * cellSize - x;
+                final double distanceSquared = dx * dx + dy * dy;
+                if (distanceSquared >= outerSquared) {
+                    continue;
+                }
+                final double distance = Math.sqrt(distanceSquared);
+                final double scale = distance <= core ? 1.0 : (outer - distance) / falloff;
+                grid[offset + row * columns + column] += (float) (weight * scale);
+            }
+        }
+    }
+
+    /**
+     * @return the field at (x, y), interpolated bilinearly between the four nearest cell centers
+     */
+    public float sample(final Layer layer, final double x, final double y) {
+        final double gx = Math.max(0.0, Math.min(columns - 1, x / cellSize - 0.5));
+        final double gy = Math.max(0.0, Math.min(rows - 1, y / cellSize - 0.5));
+        final int column = Math.min(columns - 2, (int) gx);
+        final int row = Math.min(rows - 2, (int) gy);
+        if (column < 0 || row < 0) {
+            // A single row or column of cells: nearest cell.
+            return get(layer, (int) Math.round(gx), (int) Math.round(gy));
+        }
+        final double fx = gx - column;
+        final double fy = gy - row;
+        final int index = layer.ordinal() * layerSize + row * columns + column;
+        final double top = grid[index] + (grid[index + 1] - grid[index]) * fx;
+        final double bottom = grid[index + columns] + (grid[index + columns + 1] - grid[index + columns]) * fx;
+        return (float) (top + (bottom - top) * fy);
+    }
+
+    /**
+     * @return the field at the center of a cell
+     */
+    public float get(final Layer layer, final int column, final int row) {
+        return grid[layer.ordinal() * layerSize + row * columns + column];
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+}
@@ -0,0 +1,148 @@
+package hlt;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Named timers and counters for the turn loop, summarized per turn and published to the log at game end.
+ *
+ * Enabled with the {@value #ENABLED_PROPERTY} system property. The flag is a static final, so when it is off the
+ * JIT folds every call away. Timers and counters are registered once by name, usually into static final int
+ * fields, and each gets a preallocated slot that is safe to update from several threads. At each turn boundary the
+ * slots are moved into a per-turn history, from which {@link #publish()} reports p50, p99 and max over all turns.
+ * A timer hit from several threads sums their time, so it can exceed the wall time of the phase around it.
+ *
+ * <pre>
+ * private static final int NAVIGATION = Instrumentation.timer("navigation");
+ * ...
+ * final long start = Instrumentation.start();
+ * ...
+ * Instrumentation.stop(NAVIGATION, start);
+ * </pre>
+ */
+public class Instrumentation {
+
+    public static final String ENABLED_PROPERTY = "hlt.instrument";
+
+    private static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final int MAX_SLOTS = 64;
+    private static final int INITIAL_TURNS = 512;
+
+    private static final String[] names = new String[MAX_SLOTS];
+    private static final boolean[] timers = new boolean[MAX_SLOTS];
+    private static int slotCount;
+
+    // running totals of the current turn; nanoseconds for timers
+    private static final AtomicLongArray current = new AtomicLongArray(MAX_SLOTS);
+    // history[slot][turn]
+    private static long[][] history = new long[MAX_SLOTS][INITIAL_TURNS];
+    private static int turnCount;
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return the slot of the timer with this name, registering it on first use
+     */
+    public static int timer(final String name) {
+        return register(name, true);
+    }
+
+    /**
+     * @return the slot of the counter with this name, registering it on first use
+     */
+    public static int counter(final String name) {
+        return register(name, false);
+    }
+
+    private static synchronized int register(final String name, final boolean timer) {
+        for (int slot = 0; slot < slotCount; ++slot) {
+            if (names[slot].equals(name)) {
+                return slot;
+            }
+        }
+        if (slotCount == MAX_SLOTS) {
+            throw new IllegalStateException("Too many instrumentation slots, cannot register " + name);
+        }
+        names[slotCount] = name;
+        timers[slotCount] = timer;
+        return slotCount++;
+    }
+
+    /**
+     * @return a start time to pass to {@link #stop(int, long)}, or 0 when disabled
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static void stop(final int timer, final long start) {
+        if (ENABLED) {
+            current.addAndGet(timer, System.nanoTime() - start);
+        }
+    }
+
+    public static void count(final int counter) {
+        if (ENABLED) {
+            current.incrementAndGet(counter);
+        }
+    }
+
+    public static void count(final int counter, final long delta) {
+        if (ENABLED) {
+            current.addAndGet(counter, delta);
+        }
+    }
+
+    /**
+     * Closes the current turn: every slot's total is appended to its history and reset.
+     */
+    static synchronized void endTurn() {
+        if (!ENABLED) {
+            return;
+        }
+        if (turnCount == history[0].length) {
+            for (int slot = 0; slot < MAX_SLOTS; ++slot) {
+                history[slot] = Arrays.copyOf(history[slot], turnCount * 2);
+            }
+        }
+        for (int slot = 0; slot < slotCount; ++slot) {
+            history[slot][turnCount] = current.getAndSet(slot, 0);
+        }
+        ++turnCount;
+    }
+
+    /**
+     * Drops what was measured since the last turn boundary, e.g. the pre-game setup.
+     */
+    static synchronized void discardTurn() {
+        for (int slot = 0; slot < MAX_SLOTS; ++slot) {
+            current.set(slot, 0);
+        }
+    }
+
+    /**
+     * Logs p50, p99 and max per turn of every slot; timers in microseconds.
+     */
+    static synchronized void publish() {
+        if (!ENABLED || turnCount == 0) {
+            return;
+        }
+        Log.log("--- INSTRUMENTATION (" + turnCount + " turns; timers in us per turn, counters per turn) ---");
+        Log.log(String.format("%-28s %12s %12s %12s", "name", "p50", "p99", "max"));
+        final long[] sorted = new long[turnCount];
+        for (int slot = 0; slot < slotCount; ++slot) {
+            System.arraycopy(history[slot], 0, sorted, 0, turnCount);
+            Arrays.sort(sorted);
+            final long scale = timers[slot] ? 1000 : 1;
+            Log.log(String.format("%-28s %12d %12d %12d", names[slot],
+                    percentile(sorted, 0.50) / scale, percentile(sorted, 0.99) / scale, sorted[turnCount - 1] / scale));
+        }
+    }
+
+    static long percentile(final long[] sorted, final double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+}
@@ -1,29 +1,186 @@
 package hlt;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+/**
+ * Leveled, asynchronous log.
+ *
+ * Callers only format and enqueue their message; a background thread drains a bounded queue into a buffered
+ * writer, so no bot thread ever waits on the disk. When the queue is full, messages are dropped and counted
+ * rather than blocking the turn. The file is flushed only at turn boundaries ({@link #flush()}) and on shutdown,
+ * which {@link Networking} triggers when the process exits.
+ */
 public class Log {
 
-    private final FileWriter file;
-    private static Log instance;
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF;
 
-    private Log(final FileWriter f) {
-        file = f;
+        /**
+         * @return the level with the given name, ignoring case, or defaultLevel if there is none
+         */
+        public static Level parse(final String name, final Level defaultLevel) {
+            if (name != null) {
+                for (final Level level : values()) {
+                    if (level.name().equalsIgnoreCase(name.trim())) {
+                        return level;
+                    }
+                }
+            }
+            return defaultLevel;
+        }
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+
+    // Markers are compared by identity, so a logged line with the same text is still written as a line.
+    private static final String FLUSH = new String("flush");
+    private static final String SHUTDOWN = new String("shutdown");
+
+    private static final long SHUTDOWN_WAIT_MILLIS = 1000;
+
+    private static volatile Level level = Level.INFO;
+    private static volatile Log instance;
+
+    private final Writer file;
+    private final BlockingQueue<String> queue;
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final Thread writerThread;
+    private long reportedDrops;
+
+    private Log(final Writer f, final int queueCapacity) {
+        file = new BufferedWriter(f);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writerThread = new Thread(this::drain, "log-writer");
+        writerThread.setDaemon(true);
+    }
+
+    static synchronized void initialize(final Writer f) {
+        if (instance != null) {
+            instance.stop();
+        }
+        instance = new Log(f, DEFAULT_QUEUE_CAPACITY);
+        instance.writerThread.start();
     }
 
-    static void initialize(final FileWriter f) {
-        instance = new Log(f);
+    public static void setLevel(final Level newLevel) {
+        level = newLevel;
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static boolean isEnabled(final Level messageLevel) {
+        return messageLevel != Level.OFF && messageLevel.compareTo(level) >= 0;
     }
 
     public static void log(final String message) {
+        log(Level.INFO, message);
+    }
+
+    /**
+     * Safe to call from several threads; lines from different threads are never interleaved.
+     */
+    public static void log(final Level messageLevel, final String message) {
+        final Log log = instance;
+        if (log != null && isEnabled(messageLevel)) {
+            log.enqueue(message);
+        }
+    }
+
+    /**
+     * Builds the message only if the level is enabled, so disabled debug output costs no string concatenation.
+     */
+    public static void log(final Level messageLevel, final Supplier<String> message) {
+        final Log log = instance;
+        if (log != null && isEnabled(messageLevel)) {
+            log.enqueue(message.get());
+        }
+    }
+
+    /**
+     * Asks the writer thread to flush what has been logged so far; meant to be called once per turn.
+     */
+    public static void flush() {
+        final Log log = instance;
+        if (log != null) {
+            log.queue.offer(FLUSH);
+        }
+    }
+
+    /**
+     * Writes out everything still queued and closes the file. Called on exit; later messages are ignored.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.stop();
+            instance = null;
+        }
+    }
+
+    /**
+     * @return how many messages were dropped so far because the queue was full
+     */
+    public static long getDroppedMessages() {
+        final Log log = instance;
+        return log == null ? 0 : log.droppedMessages.get();
+    }
+
+    private void enqueue(final String message) {
+        if (!queue.offer(message)) {
+            droppedMessages.incrementAndGet();
+        }
+    }
+
+    private void stop() {
+        try {
+            // Bounded waits, so a stuck writer cannot keep the process from exiting.
+            if (queue.offer(SHUTDOWN, SHUTDOWN_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                writerThread.join(SHUTDOWN_WAIT_MILLIS);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
         try {
-            instance.file.write(message);
-            instance.file.write('\n');
-            instance.file.flush();
+            for (;;) {
+                final String message = queue.take();
+                if (message == FLUSH) {
+                    reportDrops();
+                    file.flush();
+                } else if (message == SHUTDOWN) {
+                    reportDrops();
+                    file.close();
+                    return;
+                } else {
+                    file.write(message);
+                    file.write('\n');
+                }
+            }
         }
         catch (IOException e) {
             e.printStackTrace();
         }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reportDrops() throws IOException {
+        final long dropped = droppedMessages.get();
+        if (dropped != reportedDrops) {
+            file.write("(" + (dropped - reportedDrops) + " log messages dropped, queue full)\n");
+            reportedDrops = dropped;
+        }
     }
 }
@@ -1,6 +1,6 @@
 package hlt;
 
-public class Metadata {
+public class Metadata implements TokenStream {
     final private String[] metadata;
     private int index = 0;
 
@@ -12,6 +12,17 @@ public class Metadata {
         return metadata[index++];
     }
 
+    @Override
+    public int nextInt() {
+        return Integer.parseInt(pop());
+    }
+
+    @Override
+    public double nextDouble() {
+        return Double.parseDouble(pop());
+    }
+
+    @Override
     public boolean isEmpty() {
         return index == metadata.length;
     }
@@ -1,51 +1,82 @@
 package hlt;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 public class MetadataParser {
 
-    public static void populateShipList(final List<Ship> shipsOutput, final int owner, final Metadata shipsMetadata) {
-        final long numberOfShips = Long.parseLong(shipsMetadata.pop());
+    public static void populateShipList(final List<Ship> shipsOutput, final int owner, final TokenStream shipsMetadata) {
+        final int numberOfShips = shipsMetadata.nextInt();
 
         for(int i = 0; i < numberOfShips; ++i) {
-            shipsOutput.add(newShipFromMetadata(owner, shipsMetadata));
+            shipsOutput.add(newShipFromMetadata(owner, shipsMetadata.nextInt(), shipsMetadata));
         }
     }
 
-    private static Ship newShipFromMetadata(final int owner, final Metadata metadata) {
-        final int id = Integer.parseInt(metadata.pop());
-        final double xPos = Double.parseDouble(metadata.pop());
-        final double yPos = Double.parseDouble(metadata.pop());
-        final int health = Integer.parseInt(metadata.pop());
+    public static Ship newShipFromMetadata(final int owner, final int id, final TokenStream metadata) {
+        final Ship ship = new Ship(owner, id, 0, 0, 0, Ship.DockingStatus.Undocked, 0, 0, 0);
+        updateShipFromMetadata(ship, metadata);
+        return ship;
+    }
+
+    /**
+     * Reads the fields that follow a ship id into an existing ship.
+     */
+    public static void updateShipFromMetadata(final Ship ship, final TokenStream metadata) {
+        final double xPos = metadata.nextDouble();
+        final double yPos = metadata.nextDouble();
+        final int health = metadata.nextInt();
+
+        // Ignoring velocity(x,y) which is always (0,0) in current version; ShipHistory reads it from moves instead.
+        metadata.nextDouble();
+        metadata.nextDouble();
+
+        final Ship.DockingStatus dockingStatus = Ship.DockingStatus.values()[metadata.nextInt()];
+        final int dockedPlanet = metadata.nextInt();
+        final int dockingProgress = metadata.nextInt();
+        final int weaponCooldown = metadata.nextInt();
+
+        ship.update(xPos, yPos, health, dockingStatus, dockedPlanet, dockingProgress, weaponCooldown);
+    }
 
-        // Ignoring velocity(x,y) which is always (0,0) in current version.
-        metadata.pop();
-        metadata.pop();
+    public static Planet newPlanetFromMetadata(final List<Integer> dockedShips, final TokenStream metadata) {
+        return newPlanetFromMetadata(metadata.nextInt(), dockedShips, metadata);
+    }
+
+    public static Planet newPlanetFromMetadata(final int id, final List<Integer> dockedShips, final TokenStream metadata) {
+        final double xPos = metadata.nextDouble();
+        final double yPos = metadata.nextDouble();
+        final int health = metadata.nextInt();
 
-        final Ship.DockingStatus dockingStatus = Ship.DockingStatus.values()[Integer.parseInt(metadata.pop())];
-        final int dockedPlanet = Integer.parseInt(metadata.pop());
-        final int dockingProgress = Integer.parseInt(metadata.pop());
-        final int weaponCooldown = Integer.parseInt(metadata.pop());
+        final double radius = metadata.nextDouble();
+        final int dockingSpots = metadata.nextInt();
 
-        return new Ship(owner, id, xPos, yPos, health, dockingStatus, dockedPlanet, dockingProgress, weaponCooldown);
+        final Planet planet = new Planet(-1, id, xPos, yPos, health, radius, dockingSpots, 0, 0, dockedShips);
+        updatePlanetState(planet, xPos, yPos, health, metadata);
+        return planet;
     }
 
-    public static Planet newPlanetFromMetadata(final List<Integer> dockedShips, final Metadata metadata) {
-        final int id = Integer.parseInt(metadata.pop());
-        final double xPos = Double.parseDouble(metadata.pop());
-        final double yPos = Double.parseDouble(metadata.pop());
-        final int health = Integer.parseInt(metadata.pop());
+    /**
+     * Reads the fields that follow a planet id into an existing planet.
+     */
+    public static void updatePlanetFromMetadata(final Planet planet, final TokenStream metadata) {
+        final double xPos = metadata.nextDouble();
+        final double yPos = metadata.nextDouble();
+        final int health = metadata.nextInt();
+
+        // Radius and docking spots never change during a game.
+        metadata.nextDouble();
+        metadata.nextInt();
 
-        final double radius = Double.parseDouble(metadata.pop());
-        final int dockingSpots = Integer.parseInt(metadata.pop());
-        final int currentProduction = Integer.parseInt(metadata.pop());
-        final int remainingProduction = Integer.parseInt(metadata.pop());
+        updatePlanetState(planet, xPos, yPos, health, metadata);
+    }
+
+    private static void updatePlanetState(final Planet planet, final double xPos, final double yPos,
+                                          final int health, final TokenStream metadata) {
+        final int currentProduction = metadata.nextInt();
+        final int remainingProduction = metadata.nextInt();
 
-        final int hasOwner = Integer.parseInt(metadata.pop());
-        final int ownerCandidate = Integer.parseInt(metadata.pop());
+        final int hasOwner = metadata.nextInt();
+        final int ownerCandidate = metadata.nextInt();
         final int owner;
         if (hasOwner == 1) {
             owner = ownerCandidate;
@@ -53,20 +84,22 @@ public class MetadataParser {
             owner = -1; // ignore ownerCandidate
         }
 
-        final int dockedShipCount = Integer.parseInt(metadata.pop());
+        final List<Integer> dockedShips = planet.update(owner, xPos, yPos, health, currentProduction, remainingProduction);
+        final int dockedShipCount = metadata.nextInt();
         for (int i = 0; i < dockedShipCount; ++i) {
-            dockedShips.add(Integer.parseInt(metadata.pop()));
+            dockedShips.add(metadata.nextInt());
         }
+    }
 
-        return new Planet(owner, id, xPos, yPos, health, radius, dockingSpots,
-                          currentProduction, remainingProduction, dockedShips);
+    public static int parseEntityId(final TokenStream metadata) {
+        return metadata.nextInt();
     }
 
-    public static int parsePlayerNum(final Metadata metadata) {
-        return Integer.parseInt(metadata.pop());
+    public static int parsePlayerNum(final TokenStream metadata) {
+        return metadata.nextInt();
     }
 
-    public static int parsePlayerId(final Metadata metadata) {
-        return Integer.parseInt(metadata.pop());
+    public static int parsePlayerId(final TokenStream metadata) {
+        return metadata.nextInt();
     }
 }
@@ -12,11 +12,11 @@ public class Move {
         this.ship = ship;
     }
 
-    public MoveType getType() {
+    public final MoveType getType() {
         return type;
     }
 
-    public Ship getShip() {
+    public final Ship getShip() {
         return ship;
     }
 }
@@ -0,0 +1,159 @@
+package hlt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Encodes a turn's moves as an engine command line in a reusable byte buffer.
+ *
+ * Ids and numbers are written as ASCII digits straight into the buffer, so no String or StringBuilder is created
+ * per turn. The buffer grows to the longest line seen and is then reused. The line goes out in a single write, so
+ * it can be given an unbuffered, unsynchronized stream such as a FileOutputStream on the process's stdout.
+ */
+public class MoveEncoder {
+
+    private static final byte UNDOCK_KEY = 'u';
+    private static final byte DOCK_KEY = 'd';
+    private static final byte THRUST_KEY = 't';
+
+    private static final int INITIAL_BUFFER_SIZE = 1 << 14;
+    // "t <id> <thrust> <angle> " with every number at its longest
+    private static final int MAX_MOVE_LENGTH = 2 + 3 * 12;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length = 0;
+
+    private int moveCount = 0;
+    private int thrusts = 0;
+    private int docks = 0;
+    private int undocks = 0;
+
+    /**
+     * Replaces the buffer with the command line for the given moves, newline terminated. Noop moves are counted
+     * but not written.
+     */
+    public MoveEncoder encode(final Iterable<Move> moves) {
+        length = 0;
+        moveCount = thrusts = docks = undocks = 0;
+
+        for (final Move move : moves) {
+            ++moveCount;
+            // getType() is final, so this is a field read and a table switch, not a virtual call per move.
+            switch (move.getType()) {
+                case Noop:
+                    continue;
+                case Undock:
+                    ++undocks;
+                    ensureCapacity(MAX_MOVE_LENGTH);
+                    buffer[length++] = UNDOCK_KEY;
+                    buffer[length++] = ' ';
+                    appendNumber(move.getShip().getId());
+                    buffer[length++] = ' ';
+                    break;
+                case Dock:
+                    ++docks;
+                    ensureCapacity(MAX_MOVE_LENGTH);
+                    buffer[length++] = DOCK_KEY;
+                    buffer[length++] = ' ';
+                    appendNumber(move.getShip().getId());
+                    buffer[length++] = ' ';
+                    appendNumber((int) ((DockMove) move).getDestinationId());
+                    buffer[length++] = ' ';
+                    break;
+                case Thrust:
+                    ++thrusts;
+                    ensureCapacity(MAX_MOVE_LENGTH);
+                    buffer[length++] = THRUST_KEY;
+                    buffer[length++] = ' ';
+                    appendNumber(move.getShip().getId());
+                    buffer[length++] = ' ';
+                    appendNumber(((ThrustMove) move).getThrust());
+                    buffer[length++] = ' ';
+                    appendNumber(((ThrustMove) move).getAngle());
+                    buffer[length++] = ' ';
+                    break;
+            }
+        }
+        ensureCapacity(1);
+        buffer[length++] = '\n';
+        return this;
+    }
+
+    /**
+     * Replaces the buffer with a line of plain text, such as the bot's name. Characters outside ASCII become '?'.
+     */
+    public MoveEncoder encodeLine(final String text) {
+        length = 0;
+        ensureCapacity(text.length() + 1);
+        for (int i = 0; i < text.length(); ++i) {
+            final char c = text.charAt(i);
+            buffer[length++] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        buffer[length++] = '\n';
+        return this;
+    }
+
+    /**
+     * Writes the buffered line in one call and flushes the stream.
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+        out.flush();
+    }
+
+    /**
+     * @return the buffer holding the encoded line in [0, {@link #length()}); valid until the next encode
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return moves in the last encoded turn, Noops included
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getThrusts() {
+        return thrusts;
+    }
+
+    public int getDocks() {
+        return docks;
+    }
+
+    public int getUndocks() {
+        return undocks;
+    }
+
+    private void ensureCapacity(final int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private void appendNumber(final int value) {
+        // Widened so that Integer.MIN_VALUE can be negated too.
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[length++] = '-';
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long bound = 10; remaining >= bound; bound *= 10) {
+            ++digits;
+        }
+        int position = length + digits;
+        length = position;
+        do {
+            buffer[--position] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+    }
+}
@@ -0,0 +1,106 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Paths swept by the moves committed so far this turn.
+ *
+ * {@link GameMap#objectsBetween(Position, Position)} only knows where ships are now. Once a ship's move is reserved
+ * here, navigation stops treating that ship as a static obstacle and instead checks candidate moves against its
+ * whole path, assuming both ships travel in a straight line at constant speed during the turn.
+ * Cleared on every map update.
+ */
+public class MoveReservations {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Two ships closer than this at any point of the turn count as colliding; same margin as objectsBetween.
+    private static final double CLEARANCE = Constants.SHIP_RADIUS + Constants.FORECAST_FUDGE_FACTOR;
+
+    // Only ships this close at the start of the turn can meet before it ends.
+    private static final double MAX_APPROACH = 2 * Constants.MAX_SPEED + CLEARANCE;
+
+    private int count;
+    private int[] shipIds = new int[INITIAL_CAPACITY];
+    private double[] startX = new double[INITIAL_CAPACITY];
+    private double[] startY = new double[INITIAL_CAPACITY];
+    private double[] moveX = new double[INITIAL_CAPACITY];
+    private double[] moveY = new double[INITIAL_CAPACITY];
+    private boolean[] reservedById = new boolean[INITIAL_CAPACITY];
+
+    void clear() {
+        for (int i = 0; i < count; ++i) {
+            reservedById[shipIds[i]] = false;
+        }
+        count = 0;
+    }
+
+    public void reserve(final ThrustMove move) {
+        final Ship ship = move.getShip();
+        if (count == shipIds.length) {
+            final int capacity = count * 2;
+            shipIds = Arrays.copyOf(shipIds, capacity);
+            startX = Arrays.copyOf(startX, capacity);
+            startY = Arrays.copyOf(startY, capacity);
+            moveX = Arrays.copyOf(moveX, capacity);
+            moveY = Arrays.copyOf(moveY, capacity);
+        }
+        if (ship.getId() >= reservedById.length) {
+            reservedById = Arrays.copyOf(reservedById, Math.max(ship.getId() + 1, reservedById.length * 2));
+        }
+
+        final double angleRad = Math.toRadians(move.getAngle());
+        shipIds[count] = ship.getId();
+        startX[count] = ship.getXPos();
+        startY[count] = ship.getYPos();
+        moveX[count] = Math.cos(angleRad) * move.getThrust();
+        moveY[count] = Math.sin(angleRad) * move.getThrust();
+        ++count;
+        reservedById[ship.getId()] = true;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isReserved(final Ship ship) {
+        return ship.getId() < reservedById.length && reservedById[ship.getId()];
+    }
+
+    public boolean conflicts(final ThrustMove move) {
+        final double angleRad = Math.toRadians(move.getAngle());
+        final Ship ship = move.getShip();
+        return conflicts(ship,
+                ship.getXPos() + Math.cos(angleRad) * move.getThrust(),
+                ship.getYPos() + Math.sin(angleRad) * move.getThrust());
+    }
+
+    /**
+     * @return true if moving the ship in a straight line to (endX, endY) would bring it too close to any ship with
+     * a reserved move at some point during the turn
+     */
+    public boolean conflicts(final Ship ship, final double endX, final double endY) {
+        final double shipX = ship.getXPos();
+        final double shipY = ship.getYPos();
+        final double shipMoveX = endX - shipX;
+        final double shipMoveY = endY - shipY;
+
+        for (int i = 0; i < count; ++i) {
+            if (shipIds[i] == ship.getId()) {
+                continue;
+            }
+            final double dx = shipX - startX[i];
+            final double dy = shipY - startY[i];
+            if (dx * dx + dy * dy > MAX_APPROACH * MAX_APPROACH) {
+                continue;
+            }
+            // In the reserved ship's frame of reference it stands still at the origin and we move by the
+            // difference of the two moves, so the swept test reduces to one segment against one circle.
+            if (Collision.segmentCircleIntersect(dx, dy, dx + shipMoveX - moveX[i], dy + shipMoveY - moveY[i],
+                    0.0, 0.0, CLEARANCE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,19 +1,371 @@
 package hlt;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public class Navigation {
 
+    // Widens every blocked range slightly, so headings on the tangent line itself count as blocked.
+    private static final double BLOCKED_RANGE_MARGIN_DEG = 1e-9;
+
+    private static final long NO_HEADING = Long.MIN_VALUE;
+
+    private static final int NAVIGATION_TIMER = Instrumentation.timer("navigation");
+    private static final int NAVIGATION_CORRECTIONS = Instrumentation.counter("navigation corrections");
+
+    private static final ThreadLocal<NavigationScratch> navigationScratch =
+            ThreadLocal.withInitial(NavigationScratch::new);
+
     public static ThrustMove navigateShipToDock(
             final GameMap gameMap,
             final Ship ship,
             final Entity dockTarget,
             final int maxThrust)
     {
-        final int maxCorrections = Constants.MAX_NAVIGATION_CORRECTIONS;
+        return navigateShipToDock(gameMap, ship, dockTarget, maxThrust, Constants.MAX_NAVIGATION_CORRECTIONS);
+    }
+
+    public static ThrustMove navigateShipToDock(
+            final GameMap gameMap,
+            final Ship ship,
+            final Entity dockTarget,
+            final int maxThrust,
+            final int maxCorrections)
+    {
+        return navigateShipToApproachPoint(gameMap, ship, ship.getClosestPoint(dockTarget), maxThrust,
+                maxCorrections);
+    }
+
+    /**
+     * Same as {@link #navigateShipToDock(GameMap, Ship, Entity, int, int)} with the approach point already known,
+     * e.g. from {@link PlanetGeometry#getApproachPoint(Planet, Position)}.
+     */
+    public static ThrustMove navigateShipToApproachPoint(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final int maxCorrections)
+    {
+        return navigateShipToApproachPoint(gameMap, ship, null, targetPos, maxThrust, maxCorrections);
+    }
+
+    /**
+     * Same as {@link #navigateShipToApproachPoint(GameMap, Ship, Position, int, int)} for an approach point of the
+     * destination planet, so the planets in the way can be taken from and added to {@link GameMap#getPathCache()}.
+     */
+    public static ThrustMove navigateShipToApproachPoint(
+            final GameMap gameMap,
+            final Ship ship,
+            final Planet destination,
+            final Position targetPos,
+            final int maxThrust,
+            final int maxCorrections)
+    {
         final boolean avoidObstacles = true;
         final double angularStepRad = Math.PI/180.0;
-        final Position targetPos = ship.getClosestPoint(dockTarget);
 
-        return navigateShipTowardsTarget(gameMap, ship, targetPos, maxThrust, avoidObstacles, maxCorrections, angularStepRad);
+        if (!avoidObstacles) {
+            return navigateShipTowardsTarget(gameMap, ship, targetPos, maxThrust, false, maxCorrections, angularStepRad);
+        }
+        if (maxCorrections <= 0) {
+            return null;
+        }
+        final long start = Instrumentation.start();
+        final ThrustMove move = searchHeadings(gameMap, ship, destination, targetPos, maxThrust,
+                (maxCorrections - 1) * angularStepRad);
+        Instrumentation.stop(NAVIGATION_TIMER, start);
+        return move;
+    }
+
+    /**
+     * Picks the whole-degree heading nearest the target whose path is clear, looking both ways; ties go
+     * counterclockwise. Paths are checked over the full distance to the target, as in
+     * {@link #navigateShipTowardsTarget}, but the heading checked is the rounded one actually sent.
+     *
+     * Instead of rotating one step at a time, each obstacle a candidate path hits is turned into the closed range
+     * of headings whose path would hit it (bounded by its tangent lines, or by where the path ends). The next
+     * candidate is the best heading outside every range found so far, so each segment query either succeeds or
+     * rules out a new obstacle for good.
+     *
+     * Ships with a move in {@link GameMap#getMoveReservations()} are not treated as obstacles where they stand;
+     * instead the move is checked against their reserved paths, and a heading that conflicts is skipped.
+     *
+     * @return the move, or null if every heading within maxDeviationRad of the target is blocked
+     */
+    public static ThrustMove navigateShipAroundObstacles(
+            final GameMap gameMap,
+            final Ship ship,
+            final Position targetPos,
+            final int maxThrust,
+            final double maxDeviationRad)
+    {
+        final long start = Instrumentation.start();
+        final ThrustMove move = searchHeadings(gameMap, ship, null, targetPos, maxThrust, maxDeviationRad);
+        Instrumentation.stop(NAVIGATION_TIMER, start);
+        return move;
+    }
+
+    private static ThrustMove searchHeadings(
+            final GameMap gameMap,
+            final Ship ship,
+            final Planet destination,
+            final Position targetPos,
+            final int maxThrust,
+            final double maxDeviationRad)
+    {
+        final double distance = ship.getDistanceTo(targetPos);
+        final double angleDeg = Math.toDegrees(ship.orientTowardsInRad(targetPos));
+        final double maxDeviationDeg = Math.toDegrees(maxDeviationRad);
+
+        final MoveReservations reservations = gameMap.getMoveReservations();
+        final NavigationScratch scratch = navigationScratch.get();
+        scratch.clear();
+
+        final int thrust;
+        if (distance < maxThrust) {
+            // Do not round up, since overshooting might cause collision.
+            thrust = (int) distance;
+        }
+        else {
+            thrust = maxThrust;
+        }
+
+        if (destination != null) {
+            seedRoute(scratch, gameMap, ship, destination, distance, angleDeg);
+        }
+
+        for (int corrections = 0; ; ++corrections) {
+            final long heading = bestFreeHeading(scratch, angleDeg, maxDeviationDeg);
+            if (heading == NO_HEADING) {
+                Instrumentation.count(NAVIGATION_CORRECTIONS, corrections);
+                storeRoute(scratch, gameMap, ship, destination);
+                return null;
+            }
+
+            // Check the heading exactly as it will be sent; 540 and 180 degrees differ in the last bits.
+            final int sentHeading = clipHeading(heading);
+            final double headingRad = Math.toRadians(sentHeading);
+            final Position headingTarget = new Position(
+                    ship.getXPos() + Math.cos(headingRad) * distance,
+                    ship.getYPos() + Math.sin(headingRad) * distance);
+            scratch.obstacles.clear();
+            gameMap.objectsBetween(ship, headingTarget, scratch.obstacles);
+            if (reservations.size() > 0) {
+                removeReservedShips(scratch.obstacles, reservations);
+            }
+
+            if (scratch.obstacles.isEmpty()) {
+                if (reservations.size() == 0 || !reservations.conflicts(ship,
+                        ship.getXPos() + Math.cos(headingRad) * thrust,
+                        ship.getYPos() + Math.sin(headingRad) * thrust)) {
+                    Instrumentation.count(NAVIGATION_CORRECTIONS, corrections);
+                    storeRoute(scratch, gameMap, ship, destination);
+                    return new ThrustMove(ship, sentHeading, thrust, corrections);
+                }
+            }
+
+            for (final Entity obstacle : scratch.obstacles) {
+                addBlockedRange(scratch, ship, obstacle, distance, angleDeg);
+                if (destination != null && obstacle instanceof Planet) {
+                    scratch.addRoutePlanet(obstacle.getId());
+                }
+            }
+            // Rule out this heading even if rounding kept it just outside the ranges above, or it only conflicts
+            // with a reserved move.
+            final double offset = heading - angleDeg;
+            scratch.addBlocked(offset - BLOCKED_RANGE_MARGIN_DEG, offset + BLOCKED_RANGE_MARGIN_DEG);
+            scratch.sortBlocked();
+        }
+    }
+
+    /**
+     * Blocks the headings of the planets that stood in the way of an earlier flight from about here to the
+     * destination. The ranges are computed for this ship's own position, so they are exactly the ones the search
+     * would find by running into those planets.
+     */
+    private static void seedRoute(final NavigationScratch scratch, final GameMap gameMap, final Ship ship,
+                                  final Planet destination, final double distance, final double angleDeg) {
+        final int[] route = gameMap.getPathCache().get(ship.getXPos(), ship.getYPos(), destination.getId());
+        if (route == null) {
+            return;
+        }
+        for (final int planetId : route) {
+            final Planet planet = gameMap.getPlanet(planetId);
+            if (planet != null) {
+                addBlockedRange(scratch, ship, planet, distance, angleDeg);
+                scratch.addRoutePlanet(planetId);
+            }
+        }
+        scratch.seededRoutePlanets = scratch.routePlanetCount;
+        scratch.sortBlocked();
+    }
+
+    private static void storeRoute(final NavigationScratch scratch, final GameMap gameMap, final Ship ship,
+                                   final Planet destination) {
+        if (destination != null && scratch.routePlanetCount > scratch.seededRoutePlanets) {
+            gameMap.getPathCache().put(ship.getXPos(), ship.getYPos(), destination.getId(),
+                    Arrays.copyOf(scratch.routePlanets, scratch.routePlanetCount));
+        }
+    }
+
+    private static void removeReservedShips(final List<Entity> obstacles, final MoveReservations reservations) {
+        int kept = 0;
+        for (int i = 0; i < obstacles.size(); ++i) {
+            final Entity obstacle = obstacles.get(i);
+            if (!(obstacle instanceof Ship && reservations.isReserved((Ship) obstacle))) {
+                obstacles.set(kept++, obstacle);
+            }
+        }
+        obstacles.subList(kept, obstacles.size()).clear();
+    }
+
+    /**
+     * Adds the headings, relative to angleDeg, along which a path of the given length from the ship would come
+     * within {@link Constants#FORECAST_FUDGE_FACTOR} of the obstacle.
+     */
+    private static void addBlockedRange(final NavigationScratch scratch, final Ship ship, final Entity obstacle,
+                                        final double distance, final double angleDeg) {
+        final double dx = obstacle.getXPos() - ship.getXPos();
+        final double dy = obstacle.getYPos() - ship.getYPos();
+        final double obstacleDistanceSquared = dx * dx + dy * dy;
+        final double obstacleDistance = Math.sqrt(obstacleDistanceSquared);
+        final double radius = obstacle.getRadius() + Constants.FORECAST_FUDGE_FACTOR;
+
+        // Half-width of the blocked range around the obstacle's bearing.
+        final double halfAngleRad;
+        if (obstacleDistance <= radius) {
+            // Already inside the inflated circle: every heading that does not point away is blocked.
+            halfAngleRad = distance > 0.0 ? Math.PI / 2.0 : Math.PI;
+        } else if (distance * distance >= obstacleDistanceSquared - radius * radius) {
+            // The path is long enough to reach the tangent point, so the tangent lines bound the range.
+            halfAngleRad = Math.asin(radius / obstacleDistance);
+        } else {
+            // The path ends before the tangent point; its end point must fall inside the circle.
+            final double cosine = (obstacleDistanceSquared + distance * distance - radius * radius)
+                    / (2.0 * obstacleDistance * distance);
+            if (cosine > 1.0) {
+                return;
+            }
+            halfAngleRad = Math.acos(cosine);
+        }
+
+        final double bearingDeg = normalizeDeg(Math.toDegrees(Math.atan2(dy, dx)) - angleDeg);
+        final double halfAngleDeg = Math.toDegrees(halfAngleRad) + BLOCKED_RANGE_MARGIN_DEG;
+        scratch.addBlocked(bearingDeg - halfAngleDeg, bearingDeg + halfAngleDeg);
+        // Ranges crossing +-180 degrees also block the other end of the window.
+        if (bearingDeg - halfAngleDeg < -180.0) {
+            scratch.addBlocked(bearingDeg - halfAngleDeg + 360.0, bearingDeg + halfAngleDeg + 360.0);
+        }
+        if (bearingDeg + halfAngleDeg > 180.0) {
+            scratch.addBlocked(bearingDeg - halfAngleDeg - 360.0, bearingDeg + halfAngleDeg - 360.0);
+        }
+    }
+
+    /**
+     * Walks the gaps between the (sorted) blocked ranges; within a gap the best heading is the whole degree
+     * closest to the target.
+     */
+    private static long bestFreeHeading(final NavigationScratch scratch, final double angleDeg,
+                                        final double maxDeviationDeg) {
+        final long preferredHeading = Math.round(angleDeg);
+        long bestHeading = NO_HEADING;
+        double bestDeviation = Double.POSITIVE_INFINITY;
+        double freeFrom = -maxDeviationDeg;
+        for (int i = 0; i <= scratch.blockedCount && freeFrom <= maxDeviationDeg; ++i) {
+            final double freeTo = i < scratch.blockedCount
+                    ? Math.min(scratch.blockedFrom[i], maxDeviationDeg)
+                    : maxDeviationDeg;
+            if (freeFrom <= freeTo) {
+                final long lowest = (long) Math.ceil(angleDeg + freeFrom);
+                final long highest = (long) Math.floor(angleDeg + freeTo);
+                if (lowest <= highest) {
+                    final long heading = Math.max(lowest, Math.min(highest, preferredHeading));
+                    final double deviation = Math.abs(heading - angleDeg);
+                    if (deviation < bestDeviation || (deviation == bestDeviation && heading > bestHeading)) {
+                        bestDeviation = deviation;
+                        bestHeading = heading;
+                    }
+                }
+            }
+            if (i < scratch.blockedCount) {
+                freeFrom = Math.max(freeFrom, scratch.blockedTo[i]);
+            }
+        }
+        return bestHeading;
+    }
+
+    private static int clipHeading(final long headingDeg) {
+        // Make sure return value is in [0, 360) as required by game engine.
+        return (int) (((headingDeg % 360L) + 360L) % 360L);
+    }
+
+    private static double normalizeDeg(final double angleDeg) {
+        double normalized = angleDeg % 360.0;
+        if (normalized >= 180.0) {
+            normalized -= 360.0;
+        } else if (normalized < -180.0) {
+            normalized += 360.0;
+        }
+        return normalized;
+    }
+
+    private static class NavigationScratch {
+        final List<Entity> obstacles = new ArrayList<>();
+        // blocked heading ranges, in degrees relative to the target heading
+        double[] blockedFrom = new double[32];
+        double[] blockedTo = new double[32];
+        int blockedCount;
+        // planets in the way of the current flight, for the path cache; the first seededRoutePlanets came from it
+        final int[] routePlanets = new int[PathCache.MAX_ROUTE_PLANETS];
+        int routePlanetCount;
+        int seededRoutePlanets;
+
+        void clear() {
+            obstacles.clear();
+            blockedCount = 0;
+            routePlanetCount = 0;
+            seededRoutePlanets = 0;
+        }
+
+        void addRoutePlanet(final int planetId) {
+            if (routePlanetCount == routePlanets.length) {
+                return;
+            }
+            for (int i = 0; i < routePlanetCount; ++i) {
+                if (routePlanets[i] == planetId) {
+                    return;
+                }
+            }
+            routePlanets[routePlanetCount++] = planetId;
+        }
+
+        void addBlocked(final double from, final double to) {
+            if (blockedCount == blockedFrom.length) {
+                blockedFrom = Arrays.copyOf(blockedFrom, blockedCount * 2);
+                blockedTo = Arrays.copyOf(blockedTo, blockedCount * 2);
+            }
+            blockedFrom[blockedCount] = from;
+            blockedTo[blockedCount] = to;
+            ++blockedCount;
+        }
+
+        void sortBlocked() {
+            // Few ranges per query, so insertion sort by start.
+            for (int i = 1; i < blockedCount; ++i) {
+                final double from = blockedFrom[i];
+                final double to = blockedTo[i];
+                int j = i - 1;
+                while (j >= 0 && blockedFrom[j] > from) {
+                    blockedFrom[j + 1] = blockedFrom[j];
+                    blockedTo[j + 1] = blockedTo[j];
+                    --j;
+                }
+                blockedFrom[j + 1] = from;
+                blockedTo[j + 1] = to;
+            }
+        }
     }
 
     public static ThrustMove navigateShipTowardsTarget(
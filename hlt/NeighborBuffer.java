@@ -0,0 +1,170 @@
+package hlt;
+
+import java.util.Arrays;
+
+/**
+ * Reusable result buffer for neighbor queries: one entry per entity, holding its {@link EntityStore} slot,
+ * whether it is a planet, and its squared distance to the query origin.
+ *
+ * Unlike a {@code TreeMap<Double, Entity>}, entities at exactly the same distance are all kept; ties are ordered
+ * planets first, then by slot. Entries stay valid until the next query into this buffer or the next map update.
+ */
+public class NeighborBuffer {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private EntityStore store;
+    private int size;
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private boolean[] planets = new boolean[INITIAL_CAPACITY];
+    private double[] distancesSquared = new double[INITIAL_CAPACITY];
+
+    void reset(final EntityStore store) {
+        this.store = store;
+        size = 0;
+    }
+
+    void add(final int slot, final boolean planet, final double distanceSquared) {
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+            planets = Arrays.copyOf(planets, size * 2);
+            distancesSquared = Arrays.copyOf(distancesSquared, size * 2);
+        }
+        slots[size] = slot;
+        planets[size] = planet;
+        distancesSquared[size] = distanceSquared;
+        ++size;
+    }
+
+    /**
+     * Keeps only the k nearest entries and sorts them by distance. Uses quickselect first, so only the
+     * kept entries pay for sorting.
+     */
+    void keepNearest(final int k) {
+        if (k <= 0) {
+            size = 0;
+            return;
+        }
+        if (k < size) {
+            select(k - 1);
+            size = k;
+        }
+        sort(0, size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getSlot(final int i) {
+        return slots[i];
+    }
+
+    public boolean isPlanet(final int i) {
+        return planets[i];
+    }
+
+    public double getDistanceSquared(final int i) {
+        return distancesSquared[i];
+    }
+
+    public double getDistance(final int i) {
+        return Math.sqrt(distancesSquared[i]);
+    }
+
+    public Entity getEntity(final int i) {
+        return planets[i] ? store.getPlanet(slots[i]) : store.getShip(slots[i]);
+    }
+
+    public Ship getShip(final int i) {
+        return store.getShip(slots[i]);
+    }
+
+    public Planet getPlanet(final int i) {
+        return store.getPlanet(slots[i]);
+    }
+
+    private void select(final int k) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo < hi) {
+            final int pivot = partition(lo, hi);
+            if (pivot == k) {
+                return;
+            }
+            if (pivot < k) {
+                lo = pivot + 1;
+            } else {
+                hi = pivot - 1;
+            }
+        }
+    }
+
+    private void sort(int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            final int pivot = partition(lo, hi);
+            // Recurse into the smaller side to bound the stack depth.
+            if (pivot - lo < hi - pivot) {
+                sort(lo, pivot - 1);
+                lo = pivot + 1;
+            } else {
+                sort(pivot + 1, hi);
+                hi = pivot - 1;
+            }
+        }
+        for (int i = lo + 1; i <= hi; ++i) {
+            for (int j = i; j > lo && less(j, j - 1); --j) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private int partition(final int lo, final int hi) {
+        // Median of three moved to hi, then Lomuto partition around it.
+        final int mid = (lo + hi) >>> 1;
+        if (less(mid, lo)) {
+            swap(mid, lo);
+        }
+        if (less(hi, lo)) {
+            swap(hi, lo);
+        }
+        if (less(mid, hi)) {
+            swap(mid, hi);
+        }
+        int boundary = lo;
+        for (int i = lo; i < hi; ++i) {
+            if (less(i, hi)) {
+                swap(i, boundary++);
+            }
+        }
+        swap(boundary, hi);
+        return boundary;
+    }
+
+    private boolean less(final int a, final int b) {
+        if (distancesSquared[a] != distancesSquared[b]) {
+            return distancesSquared[a] < distancesSquared[b];
+        }
+        if (planets[a] != planets[b]) {
+            return planets[a];
+        }
+        return slots[a] < slots[b];
+    }
+
+    private void swap(final int a, final int b) {
+        final int slot = slots[a];
+        slots[a] = slots[b];
+        slots[b] = slot;
+        final boolean planet = planets[a];
+        planets[a] = planets[b];
+        planets[b] = planet;
+        final double distanceSquared = distancesSquared[a];
+        distancesSquared[a] = distancesSquared[b];
+        distancesSquared[b] = distanceSquared;
+    }
+}
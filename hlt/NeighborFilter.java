@@ -0,0 +1,92 @@
+package hlt;
+
+/**
+ * Immutable description of which entities a neighbor query should report.
+ *
+ * Start from {@link #ALL}, {@link #ships()} or {@link #planets()} and narrow down; build filters once and reuse them,
+ * since every narrowing call returns a new instance.
+ */
+public class NeighborFilter {
+
+    private static final int ANY_OWNER = 0;
+    private static final int SAME_OWNER = 1;
+    private static final int OTHER_OWNER = 2;
+
+    private static final int ALL_DOCKING_STATUSES = (1 << Ship.DockingStatus.values().length) - 1;
+
+    public static final NeighborFilter ALL = new NeighborFilter(true, true, ANY_OWNER, -1, ALL_DOCKING_STATUSES);
+
+    private final boolean includeShips;
+    private final boolean includePlanets;
+    private final int ownerMode;
+    private final int owner;
+    private final int dockingStatusMask;
+
+    private NeighborFilter(final boolean includeShips, final boolean includePlanets,
+                           final int ownerMode, final int owner, final int dockingStatusMask) {
+        this.includeShips = includeShips;
+        this.includePlanets = includePlanets;
+        this.ownerMode = ownerMode;
+        this.owner = owner;
+        this.dockingStatusMask = dockingStatusMask;
+    }
+
+    public static NeighborFilter ships() {
+        return new NeighborFilter(true, false, ANY_OWNER, -1, ALL_DOCKING_STATUSES);
+    }
+
+    public static NeighborFilter planets() {
+        return new NeighborFilter(false, true, ANY_OWNER, -1, ALL_DOCKING_STATUSES);
+    }
+
+    /**
+     * Keeps only entities owned by the given player; pass -1 to keep only unowned planets.
+     */
+    public NeighborFilter ownedBy(final int playerId) {
+        return new NeighborFilter(includeShips, includePlanets, SAME_OWNER, playerId, dockingStatusMask);
+    }
+
+    /**
+     * Drops entities owned by the given player. Unowned planets are kept unless playerId is -1.
+     */
+    public NeighborFilter notOwnedBy(final int playerId) {
+        return new NeighborFilter(includeShips, includePlanets, OTHER_OWNER, playerId, dockingStatusMask);
+    }
+
+    /**
+     * Keeps only ships in one of the given docking states. Planets are not affected.
+     */
+    public NeighborFilter withDockingStatus(final Ship.DockingStatus... statuses) {
+        int mask = 0;
+        for (final Ship.DockingStatus status : statuses) {
+            mask |= 1 << status.ordinal();
+        }
+        return new NeighborFilter(includeShips, includePlanets, ownerMode, owner, mask);
+    }
+
+    public boolean acceptsShips() {
+        return includeShips;
+    }
+
+    public boolean acceptsPlanets() {
+        return includePlanets;
+    }
+
+    public boolean acceptsOwner(final int entityOwner) {
+        switch (ownerMode) {
+            case SAME_OWNER:
+                return entityOwner == owner;
+            case OTHER_OWNER:
+                return entityOwner != owner;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @param dockingStatus a {@link Ship.DockingStatus} ordinal, as stored in {@link EntityStore#getShipDockStatus()}
+     */
+    public boolean acceptsDockingStatus(final int dockingStatus) {
+        return (dockingStatusMask & (1 << dockingStatus)) != 0;
+    }
+}
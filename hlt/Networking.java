@@ -1,51 +1,61 @@
 package hlt;
 
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 
-public class Networking {
+public class Networking implements GameConnection {
 
-    private static final char UNDOCK_KEY = 'u';
-    private static final char DOCK_KEY = 'd';
-    private static final char THRUST_KEY = 't';
+    private static final int READ_FRAME_TIMER = Instrumentation.timer("read frame");
+    private static final int PARSE_TIMER = Instrumentation.timer("parse (GameMap.updateMap)");
+    private static final int SEND_MOVES_TIMER = Instrumentation.timer("send moves");
+
+    private final FrameReader frameReader;
+    // Raw stdout: System.out is a synchronized PrintStream that flushes on every println.
+    private final OutputStream output = new FileOutputStream(FileDescriptor.out);
+    private final MoveEncoder moveEncoder = new MoveEncoder();
+    private final TurnBudget turnBudget = new TurnBudget();
 
     private String botName;
     private int turn = 0;
 
-    public static void sendMoves(final Iterable<Move> moves) {
-        final StringBuilder moveString = new StringBuilder();
+    public Networking() {
+        this(true);
+    }
 
-        for (final Move move : moves) {
-            switch (move.getType()) {
-                case Noop:
-                    continue;
-                case Undock:
-                    moveString.append(UNDOCK_KEY)
-                            .append(" ")
-                            .append(move.getShip().getId())
-                            .append(" ");
-                    break;
-                case Dock:
-                    moveString.append(DOCK_KEY)
-                            .append(" ")
-                            .append(move.getShip().getId())
-                            .append(" ")
-                            .append(((DockMove) move).getDestinationId())
-                            .append(" ");
-                    break;
-                case Thrust:
-                    moveString.append(THRUST_KEY)
-                            .append(" ")
-                            .append(move.getShip().getId())
-                            .append(" ")
-                            .append(((ThrustMove) move).getThrust())
-                            .append(" ")
-                            .append(((ThrustMove) move).getAngle())
-                            .append(" ");
-                    break;
-            }
+    /**
+     * @param streamingParser true to decode frames in place with a {@link FrameReader},
+     *                        false to use the String-splitting {@link Metadata} path
+     */
+    public Networking(final boolean streamingParser) {
+        // A channel straight over fd 0: System.in is a synchronized BufferedInputStream.
+        frameReader = streamingParser ? new FrameReader(new FileInputStream(FileDescriptor.in).getChannel()) : null;
+    }
+
+    @Override
+    public void sendMoves(final Iterable<Move> moves) {
+        final long start = Instrumentation.start();
+        moveEncoder.encode(moves);
+        send();
+        Instrumentation.stop(SEND_MOVES_TIMER, start);
+        Instrumentation.endTurn();
+        Trace.endTurn(moveEncoder.getMoveCount(), moveEncoder.getThrusts(), moveEncoder.getDocks(),
+                moveEncoder.getUndocks());
+        // The turn's work is done, so this is the time to pay for writing the log.
+        Log.flush();
+    }
+
+    private void send() {
+        try {
+            moveEncoder.writeTo(output);
+        } catch (final IOException e) {
+            System.exit(1);
+            throw new RuntimeException(e);
         }
-        System.out.println(moveString);
     }
 
     private static String readLine() {
@@ -53,7 +63,10 @@ public class Networking {
             StringBuilder builder = new StringBuilder();
             int buffer;
 
-            for (; (buffer = System.in.read()) >= 0;) {
+            if ((buffer = System.in.read()) < 0) {
+                return null;
+            }
+            for (; buffer >= 0; buffer = System.in.read()) {
                 if (buffer == '\n') {
                     break;
                 }
@@ -71,36 +84,84 @@ public class Networking {
     }
 
     private static Metadata readLineIntoMetadata() {
-        return new Metadata(readLine().trim().split(" "));
+        final String line = readLine();
+        return line == null ? null : new Metadata(line.trim().split(" "));
     }
 
+    /**
+     * @return the next frame, or null once the engine has closed our input at the end of the game
+     */
+    private TokenStream readFrame() {
+        if (frameReader == null) {
+            return readLineIntoMetadata();
+        }
+        try {
+            return frameReader.readFrame() ? frameReader : null;
+        } catch (final IOException e) {
+            System.exit(1);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private TokenStream requireFrame() {
+        final TokenStream frame = readFrame();
+        if (frame == null) {
+            throw new IllegalStateException("Game engine closed the connection during initialization");
+        }
+        return frame;
+    }
+
+    @Override
     public GameMap initialize(final String botName) {
         this.botName = botName;
 
-        final int myId = Integer.parseInt(readLine());
+        final int myId = requireFrame().nextInt();
         try {
             Log.initialize(new FileWriter(String.format("%d_%s.log", myId, botName)));
         }
         catch (IOException e) {
             e.printStackTrace();
         }
+        initializeTrace(myId);
+        Runtime.getRuntime().addShutdownHook(new Thread(Networking::shutdown, "bot-shutdown"));
 
-        final Metadata inputStringMapSize = readLineIntoMetadata();
-        final int width = Integer.parseInt(inputStringMapSize.pop());
-        final int height = Integer.parseInt(inputStringMapSize.pop());
+        final TokenStream inputStringMapSize = requireFrame();
+        final int width = inputStringMapSize.nextInt();
+        final int height = inputStringMapSize.nextInt();
 
         final GameMap gameMap = new GameMap(width, height, myId);
-        updateMap(gameMap);
+        if (!updateMap(gameMap)) {
+            throw new IllegalStateException("Game engine closed the connection before sending the initial map");
+        }
+        // The pre-game has a much larger time limit, keep it out of the per-turn statistics.
+        Instrumentation.discardTurn();
 
         return gameMap;
     }
 
-    public void updateMap(final GameMap map) {
+    /**
+     * Runs once when the process exits. Everything that reports through the log goes before the log is closed.
+     */
+    private static void shutdown() {
+        Instrumentation.publish();
+        Trace.close();
+        Log.shutdown();
+    }
+
+    @Override
+    public boolean updateMap(final GameMap map) {
         if (turn == 1) {
-            System.out.println(botName);
+            moveEncoder.encodeLine(botName);
+            send();
         }
 
-        final Metadata inputStringMetadata = readLineIntoMetadata();
+        final long readStart = Instrumentation.start();
+        final TokenStream inputStringMetadata = readFrame();
+        Instrumentation.stop(READ_FRAME_TIMER, readStart);
+        if (inputStringMetadata == null) {
+            // The engine closes our input once the game is over.
+            return false;
+        }
 
         if (turn == 0) {
             Log.log("--- PRE-GAME ---");
@@ -109,6 +170,32 @@ public class Networking {
         }
         ++turn;
 
+        final long parseStart = System.nanoTime();
         map.updateMap(inputStringMetadata);
+        Instrumentation.stop(PARSE_TIMER, parseStart);
+        turnBudget.start();
+        Trace.beginTurn(turn - 1, System.nanoTime() - parseStart, map);
+        return true;
+    }
+
+    private void initializeTrace(final int myId) {
+        final String directory = System.getProperty(Trace.TRACE_DIRECTORY_PROPERTY);
+        if (directory == null || directory.isEmpty()) {
+            return;
+        }
+        // Self-play runs many games in the same directory, so the start time keeps file names apart.
+        final File file = new File(directory,
+                String.format("%d_%s_%d.trace", myId, botName, System.currentTimeMillis()));
+        try {
+            Trace.initialize(new FileOutputStream(file));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public TurnBudget getTurnBudget() {
+        return turnBudget;
     }
 }
@@ -0,0 +1,109 @@
+package hlt;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which planets stood in the way of flights to a planet, by (source cell, destination planet).
+ *
+ * Planets never move, so a ship setting off for a planet from near where another ship (or the same ship, last
+ * turn) set off is blocked by the same planets. {@link Navigation} seeds its heading search with the headings
+ * those planets block, computed exactly for the ship's own position, and then only has to query segments for
+ * what is new: ships and planets the earlier flight did not run into. Since the seeded headings are truly
+ * blocked, the heading found is the same as without the cache; only the number of segment queries drops.
+ *
+ * Entries hold a few planet ids each. The least recently used are dropped beyond a fixed count, and entries that
+ * lead to or past a destroyed planet are dropped with it, see {@link #removePlanets(List)}. Safe to use from
+ * the concurrent decision pass.
+ */
+public class PathCache {
+
+    /** Side of the square cells that source positions are bucketed into, one turn of travel at full speed */
+    public static final double CELL_SIZE = Constants.MAX_SPEED;
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** Planets remembered per route; a flight rarely has more than a few in the way */
+    static final int MAX_ROUTE_PLANETS = 8;
+
+    private static final int HITS = Instrumentation.counter("path cache hits");
+    private static final int MISSES = Instrumentation.counter("path cache misses");
+
+    private final Map<Long, int[]> routes;
+
+    public PathCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PathCache(final int capacity) {
+        routes = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, int[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return ids of the planets that blocked an earlier flight from this cell to the destination, or null
+     */
+    public synchronized int[] get(final double x, final double y, final int destinationId) {
+        final int[] route = routes.get(key(x, y, destinationId));
+        Instrumentation.count(route != null ? HITS : MISSES);
+        return route;
+    }
+
+    /**
+     * Stores the planets that block flights from this cell to the destination; the array is kept, not copied.
+     */
+    public synchronized void put(final double x, final double y, final int destinationId, final int[] planetIds) {
+        routes.put(key(x, y, destinationId), planetIds);
+    }
+
+    /**
+     * Drops every route to or past a destroyed planet, such as {@link GameMap#getDestroyedPlanets()}.
+     */
+    public synchronized void removePlanets(final List<Planet> destroyed) {
+        if (destroyed.isEmpty() || routes.isEmpty()) {
+            return;
+        }
+        final Iterator<Map.Entry<Long, int[]>> entries = routes.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<Long, int[]> entry = entries.next();
+            if (involves(entry.getKey(), entry.getValue(), destroyed)) {
+                entries.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return routes.size();
+    }
+
+    public synchronized void clear() {
+        routes.clear();
+    }
+
+    private static boolean involves(final long key, final int[] route, final List<Planet> destroyed) {
+        for (int i = 0; i < destroyed.size(); ++i) {
+            final int id = destroyed.get(i).getId();
+            if ((key & 0xFFFF) == id) {
+                return true;
+            }
+            for (final int planetId : route) {
+                if (planetId == id) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long key(final double x, final double y, final int destinationId) {
+        final long cellX = (long) Math.floor(x / CELL_SIZE) & 0xFFFF;
+        final long cellY = (long) Math.floor(y / CELL_SIZE) & 0xFFFF;
+        return (cellX << 32) | (cellY << 16) | (destinationId & 0xFFFF);
+    }
+}
@@ -5,9 +5,10 @@ import java.util.List;
 
 public class Planet extends Entity {
 
-    private final int remainingProduction;
-    private final int currentProduction;
+    private int remainingProduction;
+    private int currentProduction;
     private final int dockingSpots;
+    private final List<Integer> dockedShipIds;
     private final List<Integer> dockedShips;
 
     public Planet(final int owner, final int id, final double xPos, final double yPos, final int health,
@@ -19,9 +20,23 @@ public class Planet extends Entity {
         this.dockingSpots = dockingSpots;
         this.currentProduction = currentProduction;
         this.remainingProduction = remainingProduction;
+        this.dockedShipIds = dockedShips;
         this.dockedShips = Collections.unmodifiableList(dockedShips);
     }
 
+    /**
+     * Updates the per-turn state in place. The returned list is the one backing {@link #getDockedShips()},
+     * cleared so the caller can refill it.
+     */
+    List<Integer> update(final int owner, final double xPos, final double yPos, final int health,
+                         final int currentProduction, final int remainingProduction) {
+        updateEntity(owner, xPos, yPos, health);
+        this.currentProduction = currentProduction;
+        this.remainingProduction = remainingProduction;
+        dockedShipIds.clear();
+        return dockedShipIds;
+    }
+
     public int getRemainingProduction() {
         return remainingProduction;
     }
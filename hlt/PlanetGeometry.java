@@ -0,0 +1,92 @@
+package hlt;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Static planet geometry, computed once in the pre-game and looked up every turn.
+ *
+ * Planets never move, so the ring of docking approach points around each (see
+ * {@link Position#getClosestPoint(Entity)}) is fixed for the game. The only thing that changes it is a planet being
+ * destroyed, which drops its entries, see {@link #removePlanets(List)}.
+ *
+ * Tables are indexed by planet id. Not thread safe to update, but safe to read from many threads between updates.
+ */
+public class PlanetGeometry {
+
+    private final int slots;
+    private final boolean[] present;
+    private final double[] x;
+    private final double[] y;
+    private final double[] approachRadius;
+
+    public PlanetGeometry(final Collection<Planet> planets) {
+        int maxId = -1;
+        for (final Planet planet : planets) {
+            maxId = Math.max(maxId, planet.getId());
+        }
+        slots = maxId + 1;
+        present = new boolean[slots];
+        x = new double[slots];
+        y = new double[slots];
+        approachRadius = new double[slots];
+
+        for (final Planet planet : planets) {
+            final int id = planet.getId();
+            present[id] = true;
+            x[id] = planet.getXPos();
+            y[id] = planet.getYPos();
+            approachRadius[id] = planet.getRadius() + Constants.MIN_DISTANCE_FOR_CLOSEST_POINT;
+        }
+    }
+
+    /**
+     * Drops destroyed planets, such as {@link GameMap#getDestroyedPlanets()}. Cheap when the list is empty, so it
+     * can be called every turn.
+     */
+    public void removePlanets(final List<Planet> destroyed) {
+        for (int i = 0; i < destroyed.size(); ++i) {
+            final int id = destroyed.get(i).getId();
+            if (contains(id)) {
+                present[id] = false;
+            }
+        }
+    }
+
+    /**
+     * @return whether the planet is in the tables: known at the start of the game and not destroyed since
+     */
+    public boolean contains(final int planetId) {
+        return planetId >= 0 && planetId < slots && present[planetId];
+    }
+
+    /**
+     * Same point as {@code from.getClosestPoint(planet)}, the docking approach point on the planet's ring facing
+     * from, found by scaling the offset to the precomputed ring radius instead of through atan2, cos and sin.
+     */
+    public Position getApproachPoint(final Planet planet, final Position from) {
+        final int id = planet.getId();
+        if (!contains(id)) {
+            return from.getClosestPoint(planet);
+        }
+        final double dx = from.getXPos() - x[id];
+        final double dy = from.getYPos() - y[id];
+        final double length = Math.sqrt(dx * dx + dy * dy);
+        if (length == 0.0) {
+            return from.getClosestPoint(planet);
+        }
+        final double scale = approachRadius[id] / length;
+        return new Position(x[id] + dx * scale, y[id] + dy * scale);
+    }
+
+    @Override
+    public String toString() {
+        int planets = 0;
+        for (int id = 0; id < slots; ++id) {
+            if (present[id]) {
+                ++planets;
+            }
+        }
+        return "PlanetGeometry: approach points of " + planets + " planets";
+    }
+}
@@ -2,14 +2,19 @@ package hlt;
 
 public class Position {
 
-    private final double xPos;
-    private final double yPos;
+    private double xPos;
+    private double yPos;
 
     public Position(final double xPos, final double yPos) {
         this.xPos = xPos;
         this.yPos = yPos;
     }
 
+    void setPosition(final double xPos, final double yPos) {
+        this.xPos = xPos;
+        this.yPos = yPos;
+    }
+
     public double getXPos() {
         return xPos;
     }
@@ -4,10 +4,10 @@ public class Ship extends Entity {
 
     public enum DockingStatus { Undocked, Docking, Docked, Undocking }
 
-    private final DockingStatus dockingStatus;
-    private final int dockedPlanet;
-    private final int dockingProgress;
-    private final int weaponCooldown;
+    private DockingStatus dockingStatus;
+    private int dockedPlanet;
+    private int dockingProgress;
+    private int weaponCooldown;
 
     public Ship(final int owner, final int id, final double xPos, final double yPos,
                 final int health, final DockingStatus dockingStatus, final int dockedPlanet,
@@ -21,6 +21,15 @@ public class Ship extends Entity {
         this.weaponCooldown = weaponCooldown;
     }
 
+    void update(final double xPos, final double yPos, final int health, final DockingStatus dockingStatus,
+                final int dockedPlanet, final int dockingProgress, final int weaponCooldown) {
+        updateEntity(getOwner(), xPos, yPos, health);
+        this.dockingStatus = dockingStatus;
+        this.dockedPlanet = dockedPlanet;
+        this.dockingProgress = dockingProgress;
+        this.weaponCooldown = weaponCooldown;
+    }
+
     public int getWeaponCooldown() {
         return weaponCooldown;
     }
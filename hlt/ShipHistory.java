@@ -0,0 +1,161 @@
+package hlt;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The last few positions of every ship, kept across map updates, and where ships are headed at that rate.
+ *
+ * The engine reports a velocity for every ship, but it is always (0,0) by the time a bot sees the frame: thrust
+ * only lasts the turn it is applied in. A ship's heading is therefore read from how far it moved between frames.
+ * Enemy bots mostly keep a course for several turns, so the last move, repeated, is a good guess of the next.
+ *
+ * Positions are kept per ship id in a ring of {@link #DEFAULT_DEPTH} turns, in primitive arrays that grow with
+ * the highest id seen. A ship that skips an update, or is destroyed, starts a new history. Not thread safe to
+ * update, but safe to read from many threads between updates.
+ */
+public class ShipHistory {
+
+    public static final int DEFAULT_DEPTH = 8;
+
+    /** Turns ahead that {@link #getInterceptPoint(Position, Ship, double)} looks for a meeting point */
+    public static final int MAX_INTERCEPT_TURNS = 10;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int depth;
+    private final double width;
+    private final double height;
+    private int turn = 0;
+
+    // per ship id
+    private int[] lastTurn = new int[INITIAL_CAPACITY];
+    private int[] samples = new int[INITIAL_CAPACITY];
+    // [id * depth + turn % depth]
+    private double[] x;
+    private double[] y;
+
+    public ShipHistory(final int width, final int height) {
+        this(width, height, DEFAULT_DEPTH);
+    }
+
+    public ShipHistory(final int width, final int height, final int depth) {
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        this.x = new double[INITIAL_CAPACITY * depth];
+        this.y = new double[INITIAL_CAPACITY * depth];
+    }
+
+    /**
+     * Records a turn: every ship on the map now, and the ships destroyed since the last turn.
+     */
+    public void record(final List<Ship> ships, final List<Ship> destroyed) {
+        ++turn;
+        for (int i = 0; i < destroyed.size(); ++i) {
+            final int id = destroyed.get(i).getId();
+            if (id < samples.length) {
+                samples[id] = 0;
+            }
+        }
+        for (int i = 0; i < ships.size(); ++i) {
+            final Ship ship = ships.get(i);
+            final int id = ship.getId();
+            ensureCapacity(id + 1);
+            if (lastTurn[id] != turn - 1) {
+                samples[id] = 0;
+            }
+            final int index = id * depth + turn % depth;
+            x[index] = ship.getXPos();
+            y[index] = ship.getYPos();
+            samples[id] = Math.min(depth, samples[id] + 1);
+            lastTurn[id] = turn;
+        }
+    }
+
+    /**
+     * @return turns of history for the ship, counting this one; 0 for a ship not on the map this turn
+     */
+    public int getSampleCount(final Ship ship) {
+        final int id = ship.getId();
+        return id < samples.length && lastTurn[id] == turn ? samples[id] : 0;
+    }
+
+    /**
+     * @param turnsAgo 0 for this turn, up to {@link #getSampleCount(Ship)} - 1
+     * @return where the ship was that many turns ago
+     */
+    public Position getPosition(final Ship ship, final int turnsAgo) {
+        if (turnsAgo < 0 || turnsAgo >= getSampleCount(ship)) {
+            throw new IllegalArgumentException("No position for ship " + ship.getId() + " " + turnsAgo + " turns ago");
+        }
+        final int index = indexOf(ship.getId(), turnsAgo);
+        return new Position(x[index], y[index]);
+    }
+
+    /**
+     * @return how far the ship moved along x since last turn; 0 without a last turn
+     */
+    public double getVelocityX(final Ship ship) {
+        return getSampleCount(ship) < 2 ? 0.0 : x[indexOf(ship.getId(), 0)] - x[indexOf(ship.getId(), 1)];
+    }
+
+    /**
+     * @return how far the ship moved along y since last turn; 0 without a last turn
+     */
+    public double getVelocityY(final Ship ship) {
+        return getSampleCount(ship) < 2 ? 0.0 : y[indexOf(ship.getId(), 0)] - y[indexOf(ship.getId(), 1)];
+    }
+
+    /**
+     * @return where the ship will be in the given number of turns if it keeps its last move, kept on the map;
+     * where it is now for a ship that is docking, docked or undocking, or has no history
+     */
+    public Position predict(final Ship ship, final int turns) {
+        if (ship.getDockingStatus() != Ship.DockingStatus.Undocked) {
+            return new Position(ship.getXPos(), ship.getYPos());
+        }
+        final double predictedX = ship.getXPos() + getVelocityX(ship) * turns;
+        final double predictedY = ship.getYPos() + getVelocityY(ship) * turns;
+        return new Position(Math.max(0.0, Math.min(width, predictedX)), Math.max(0.0, Math.min(height, predictedY)));
+    }
+
+    /**
+     * @return the first predicted position of target, within {@link #MAX_INTERCEPT_TURNS}, that a ship at from
+     * can reach in as many turns at the given speed; if none is, the one it falls least short of
+     */
+    public Position getInterceptPoint(final Position from, final Ship target, final double speed) {
+        if (getVelocityX(target) == 0.0 && getVelocityY(target) == 0.0) {
+            return predict(target, 0);
+        }
+        Position closest = null;
+        double closestShortfall = Double.POSITIVE_INFINITY;
+        for (int turns = 1; turns <= MAX_INTERCEPT_TURNS; ++turns) {
+            final Position predicted = predict(target, turns);
+            final double shortfall = from.getDistanceTo(predicted) - speed * turns;
+            if (shortfall <= 0.0) {
+                return predicted;
+            }
+            if (shortfall < closestShortfall) {
+                closestShortfall = shortfall;
+                closest = predicted;
+            }
+        }
+        return closest;
+    }
+
+    private int indexOf(final int id, final int turnsAgo) {
+        return id * depth + (turn - turnsAgo) % depth;
+    }
+
+    private void ensureCapacity(final int ships) {
+        if (samples.length >= ships) {
+            return;
+        }
+        final int capacity = Math.max(ships, samples.length * 2);
+        lastTurn = Arrays.copyOf(lastTurn, capacity);
+        samples = Arrays.copyOf(samples, capacity);
+        x = Arrays.copyOf(x, capacity * depth);
+        y = Arrays.copyOf(y, capacity * depth);
+    }
+}
@@ -0,0 +1,268 @@
+package hlt;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Uniform grid over the map used to answer radius and segment queries without scanning every entity.
+ *
+ * Every entity is registered in each cell overlapped by its bounding box, so planets usually span
+ * several cells while ships sit in one. The cell lists are kept in flat int arrays (one offset table
+ * plus one item table) that are reused from turn to turn. Queries keep their scratch state per thread, so they may
+ * run concurrently between rebuilds.
+ */
+public class SpatialIndex {
+
+    public static final double DEFAULT_CELL_SIZE = 8.0;
+
+    private static final int ENTITIES_SCANNED = Instrumentation.counter("entities scanned");
+
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+
+    // cellStart[c] .. cellStart[c + 1] is the slice of cellItems belonging to cell c
+    private final int[] cellStart;
+    private final int[] cellCursor;
+    private int[] cellItems = new int[0];
+
+    private Entity[] entities = new Entity[0];
+    private int entityCount;
+
+    // used only during queries to report every entity once, even when it spans several cells
+    private final ThreadLocal<QueryScratch> queryScratch = ThreadLocal.withInitial(QueryScratch::new);
+
+    public SpatialIndex(final int width, final int height) {
+        this(width, height, DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialIndex(final int width, final int height, final double cellSize) {
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellStart = new int[columns * rows + 1];
+        this.cellCursor = new int[columns * rows];
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    public void rebuild(final Collection<? extends Entity> planets, final Collection<? extends Entity> ships) {
+        final int count = planets.size() + ships.size();
+        if (entities.length < count) {
+            entities = new Entity[count];
+        }
+        entityCount = 0;
+        for (final Entity planet : planets) {
+            entities[entityCount++] = planet;
+        }
+        for (final Entity ship : ships) {
+            entities[entityCount++] = ship;
+        }
+        Arrays.fill(entities, entityCount, entities.length, null);
+
+        // pass 1: count entries per cell
+        Arrays.fill(cellStart, 0);
+        for (int i = 0; i < entityCount; ++i) {
+            final Entity entity = entities[i];
+            final int minColumn = column(entity.getXPos() - entity.getRadius());
+            final int maxColumn = column(entity.getXPos() + entity.getRadius());
+            final int minRow = row(entity.getYPos() - entity.getRadius());
+            final int maxRow = row(entity.getYPos() + entity.getRadius());
+            for (int r = minRow; r <= maxRow; ++r) {
+                for (int c = minColumn; c <= maxColumn; ++c) {
+                    ++cellStart[r * columns + c + 1];
+                }
+            }
+        }
+
+        // pass 2: prefix sums turn counts into offsets
+        for (int c = 1; c < cellStart.length; ++c) {
+            cellStart[c] += cellStart[c - 1];
+        }
+        final int totalEntries = cellStart[cellStart.length - 1];
+        if (cellItems.length < totalEntries) {
+            cellItems = new int[Math.max(totalEntries, cellItems.length * 2)];
+        }
+        System.arraycopy(cellStart, 0, cellCursor, 0, cellCursor.length);
+
+        // pass 3: fill, in entity order, so each cell lists planets before ships
+        for (int i = 0; i < entityCount; ++i) {
+            final Entity entity = entities[i];
+            final int minColumn = column(entity.getXPos() - entity.getRadius());
+            final int maxColumn = column(entity.getXPos() + entity.getRadius());
+            final int minRow = row(entity.getYPos() - entity.getRadius());
+            final int maxRow = row(entity.getYPos() + entity.getRadius());
+            for (int r = minRow; r <= maxRow; ++r) {
+                for (int c = minColumn; c <= maxColumn; ++c) {
+                    cellItems[cellCursor[r * columns + c]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects every entity whose center lies within the given radius of (x, y), excluding {@code exclude}.
+     * Entities are reported in index order: planets first, then ships in the order they were parsed.
+     */
+    public void entitiesWithinRadius(final double x, final double y, final double radius,
+                                     final Entity exclude, final List<Entity> output) {
+        final QueryScratch scratch = queryScratch.get();
+        final int[] visitedStamp = scratch.prepare(entityCount);
+        final int stamp = scratch.queryStamp;
+        final double radiusSquared = radius * radius;
+        int foundCount = 0;
+        int scanned = 0;
+
+        final int minColumn = column(x - radius);
+        final int maxColumn = column(x + radius);
+        final int minRow = row(y - radius);
+        final int maxRow = row(y + radius);
+
+        for (int r = minRow; r <= maxRow; ++r) {
+            for (int c = minColumn; c <= maxColumn; ++c) {
+                final int cell = r * columns + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; ++k) {
+                    final int index = cellItems[k];
+                    if (visitedStamp[index] == stamp) {
+                        continue;
+                    }
+                    visitedStamp[index] = stamp;
+
+                    ++scanned;
+                    final Entity entity = entities[index];
+                    if (entity.equals(exclude)) {
+                        continue;
+                    }
+                    final double dx = entity.getXPos() - x;
+                    final double dy = entity.getYPos() - y;
+                    if (dx * dx + dy * dy <= radiusSquared) {
+                        foundCount = scratch.addFound(foundCount, index);
+                    }
+                }
+            }
+        }
+
+        Instrumentation.count(ENTITIES_SCANNED, scanned);
+        emitFound(scratch, foundCount, output);
+    }
+
+    /**
+     * Collects every entity whose circle, inflated by {@code fudge}, is crossed by the segment from start to
+     * target. Only the cells within {@code fudge} of the segment are visited. Entities equal to start or target
+     * are skipped, matching {@link GameMap#objectsBetween(Position, Position)}.
+     */
+    public void entitiesBetween(final Position start, final Position target, final double fudge,
+                                final List<Entity> output) {
+        final QueryScratch scratch = queryScratch.get();
+        final int[] visitedStamp = scratch.prepare(entityCount);
+        final int stamp = scratch.queryStamp;
+        int foundCount = 0;
+        int scanned = 0;
+
+        final double startX = start.getXPos();
+        final double startY = start.getYPos();
+        final double endX = target.getXPos();
+        final double endY = target.getYPos();
+
+        final int minRow = row(Math.min(startY, endY) - fudge);
+        final int maxRow = row(Math.max(startY, endY) + fudge);
+
+        for (int r = minRow; r <= maxRow; ++r) {
+            // Clip the segment to this row's band (widened by fudge) to find the columns it touches.
+            final double bandTop = r * cellSize - fudge;
+            final double bandBottom = (r + 1) * cellSize + fudge;
+            double tEnter = 0.0;
+            double tExit = 1.0;
+            final double dy = endY - startY;
+            if (dy != 0.0) {
+                final double t1 = (bandTop - startY) / dy;
+                final double t2 = (bandBottom - startY) / dy;
+                tEnter = Math.max(0.0, Math.min(t1, t2));
+                tExit = Math.min(1.0, Math.max(t1, t2));
+                if (tEnter > tExit) {
+                    continue;
+                }
+            }
+            final double x1 = startX + (endX - startX) * tEnter;
+            final double x2 = startX + (endX - startX) * tExit;
+            final int minColumn = column(Math.min(x1, x2) - fudge);
+            final int maxColumn = column(Math.max(x1, x2) + fudge);
+
+            for (int c = minColumn; c <= maxColumn; ++c) {
+                final int cell = r * columns + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; ++k) {
+                    final int index = cellItems[k];
+                    if (visitedStamp[index] == stamp) {
+                        continue;
+                    }
+                    visitedStamp[index] = stamp;
+
+                    ++scanned;
+                    final Entity entity = entities[index];
+                    if (entity.equals(start) || entity.equals(target)) {
+                        continue;
+                    }
+                    if (Collision.segmentCircleIntersect(start, target, entity, fudge)) {
+                        foundCount = scratch.addFound(foundCount, index);
+                    }
+                }
+            }
+        }
+
+        Instrumentation.count(ENTITIES_SCANNED, scanned);
+        emitFound(scratch, foundCount, output);
+    }
+
+    private void emitFound(final QueryScratch scratch, final int foundCount, final List<Entity> output) {
+        // Cells are visited in grid order; sort so results keep the planets-then-ships order of a linear scan.
+        final int[] found = scratch.found;
+        Arrays.sort(found, 0, foundCount);
+        for (int i = 0; i < foundCount; ++i) {
+            output.add(entities[found[i]]);
+        }
+    }
+
+    private static class QueryScratch {
+        // visitedStamp[i] == queryStamp once entity i has been reported by the current query
+        int[] visitedStamp = new int[0];
+        int queryStamp;
+        int[] found = new int[64];
+
+        int[] prepare(final int entityCount) {
+            if (visitedStamp.length < entityCount) {
+                visitedStamp = new int[entityCount];
+            }
+            if (++queryStamp == Integer.MAX_VALUE) {
+                Arrays.fill(visitedStamp, 0);
+                queryStamp = 1;
+            }
+            return visitedStamp;
+        }
+
+        int addFound(final int foundCount, final int index) {
+            if (foundCount == found.length) {
+                found = Arrays.copyOf(found, found.length * 2);
+            }
+            found[foundCount] = index;
+            return foundCount + 1;
+        }
+    }
+
+    private int column(final double x) {
+        return clamp((int) Math.floor(x / cellSize), columns);
+    }
+
+    private int row(final double y) {
+        return clamp((int) Math.floor(y / cellSize), rows);
+    }
+
+    private static int clamp(final int value, final int size) {
+        if (value < 0) {
+            return 0;
+        }
+        return value >= size ? size - 1 : value;
+    }
+}
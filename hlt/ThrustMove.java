@@ -4,11 +4,17 @@ public class ThrustMove extends Move {
 
     private final int angleDeg;
     private final int thrust;
+    private final int navigationCorrections;
 
     public ThrustMove(final Ship ship, final int angleDeg, final int thrust) {
+        this(ship, angleDeg, thrust, 0);
+    }
+
+    public ThrustMove(final Ship ship, final int angleDeg, final int thrust, final int navigationCorrections) {
         super(MoveType.Thrust, ship);
         this.thrust = thrust;
         this.angleDeg = angleDeg;
+        this.navigationCorrections = navigationCorrections;
     }
 
     public int getAngle() {
@@ -18,4 +24,11 @@ public class ThrustMove extends Move {
     public int getThrust() {
         return thrust;
     }
+
+    /**
+     * @return how many candidate headings navigation rejected before settling on this one; 0 if not navigated
+     */
+    public int getNavigationCorrections() {
+        return navigationCorrections;
+    }
 }
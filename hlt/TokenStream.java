@@ -0,0 +1,13 @@
+package hlt;
+
+/**
+ * Sequence of numeric tokens making up one line sent by the Halite game engine.
+ */
+public interface TokenStream {
+
+    int nextInt();
+
+    double nextDouble();
+
+    boolean isEmpty();
+}
@@ -0,0 +1,165 @@
+package hlt;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compact binary per-turn trace for post-game analysis; see {@code TraceReader} in {@code tools/} for turning traces into CSV.
+ *
+ * Disabled unless {@link #initialize(OutputStream)} is called, which {@link Networking} does when the
+ * {@value #TRACE_DIRECTORY_PROPERTY} system property names a directory. While disabled every call returns at once.
+ * A turn is buffered in primitive arrays and written in one go when its moves are sent, so tracing never touches
+ * the disk in the middle of a turn.
+ *
+ * File layout (big-endian, as written by DataOutputStream): an int {@link #MAGIC} and a short {@link #VERSION},
+ * then one record per turn:
+ * <pre>
+ * int turn, long parseNanos, long decisionNanos,
+ * int allShips, int planets, int myShips,
+ * int moves, int thrusts, int docks, int undocks,
+ * int decisionCount, decisionCount x (int shipId, byte pass, int nanos, short navigationCorrections)
+ * </pre>
+ */
+public class Trace {
+
+    public static final String TRACE_DIRECTORY_PROPERTY = "hlt.trace";
+
+    public static final int MAGIC = 0x484c5454; // "HLTT"
+    public static final short VERSION = 1;
+
+    /** Decision passes, as recorded per ship */
+    public static final byte PASS_FALLBACK = 0;
+    public static final byte PASS_REFINE = 1;
+    public static final byte PASS_REPLAN = 2;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static volatile Trace instance;
+
+    private final DataOutputStream out;
+
+    private int turn;
+    private long parseNanos;
+    private long turnStartNanos;
+    private int allShips;
+    private int planets;
+    private int myShips;
+
+    private int decisionCount;
+    private int[] decisionShipIds = new int[INITIAL_CAPACITY];
+    private byte[] decisionPasses = new byte[INITIAL_CAPACITY];
+    private int[] decisionNanos = new int[INITIAL_CAPACITY];
+    private short[] decisionCorrections = new short[INITIAL_CAPACITY];
+
+    private Trace(final OutputStream stream) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    static synchronized void initialize(final OutputStream stream) throws IOException {
+        instance = new Trace(stream);
+    }
+
+    public static boolean isEnabled() {
+        return instance != null;
+    }
+
+    /**
+     * Starts a turn record once the frame has been parsed.
+     */
+    static synchronized void beginTurn(final int turn, final long parseNanos, final GameMap map) {
+        final Trace trace = instance;
+        if (trace == null) {
+            return;
+        }
+        trace.turn = turn;
+        trace.parseNanos = parseNanos;
+        trace.turnStartNanos = System.nanoTime();
+        trace.allShips = map.getAllShips().size();
+        trace.planets = map.getAllPlanets().size();
+        trace.myShips = map.getMyPlayer().getShips().size();
+        trace.decisionCount = 0;
+    }
+
+    /**
+     * Records one ship decision; safe to call from several threads.
+     *
+     * @param navigationCorrections headings rejected before the move was found, see
+     *                              {@link ThrustMove#getNavigationCorrections()}
+     */
+    public static synchronized void recordDecision(final int shipId, final byte pass, final long nanos,
+                                                   final int navigationCorrections) {
+        final Trace trace = instance;
+        if (trace == null) {
+            return;
+        }
+        if (trace.decisionCount == trace.decisionShipIds.length) {
+            final int capacity = trace.decisionCount * 2;
+            trace.decisionShipIds = Arrays.copyOf(trace.decisionShipIds, capacity);
+            trace.decisionPasses = Arrays.copyOf(trace.decisionPasses, capacity);
+            trace.decisionNanos = Arrays.copyOf(trace.decisionNanos, capacity);
+            trace.decisionCorrections = Arrays.copyOf(trace.decisionCorrections, capacity);
+        }
+        final int i = trace.decisionCount++;
+        trace.decisionShipIds[i] = shipId;
+        trace.decisionPasses[i] = pass;
+        trace.decisionNanos[i] = (int) Math.min(nanos, Integer.MAX_VALUE);
+        trace.decisionCorrections[i] = (short) Math.min(navigationCorrections, Short.MAX_VALUE);
+    }
+
+    /**
+     * Finishes the turn record with the moves being sent and writes it out.
+     */
+    static synchronized void endTurn(final int moves, final int thrusts, final int docks, final int undocks) {
+        final Trace trace = instance;
+        if (trace == null) {
+            return;
+        }
+        try {
+            trace.writeTurn(moves, thrusts, docks, undocks);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            instance = null;
+        }
+    }
+
+    static synchronized void close() {
+        final Trace trace = instance;
+        instance = null;
+        if (trace != null) {
+            try {
+                trace.out.close();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void writeTurn(final int moves, final int thrusts, final int docks, final int undocks)
+            throws IOException {
+        out.writeInt(turn);
+        out.writeLong(parseNanos);
+        out.writeLong(System.nanoTime() - turnStartNanos);
+        out.writeInt(allShips);
+        out.writeInt(planets);
+        out.writeInt(myShips);
+        out.writeInt(moves);
+        out.writeInt(thrusts);
+        out.writeInt(docks);
+        out.writeInt(undocks);
+        out.writeInt(decisionCount);
+        for (int i = 0; i < decisionCount; ++i) {
+            out.writeInt(decisionShipIds[i]);
+            out.writeByte(decisionPasses[i]);
+            out.writeInt(decisionNanos[i]);
+            out.writeShort(decisionCorrections[i]);
+        }
+        decisionCount = 0;
+    }
+}
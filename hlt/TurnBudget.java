@@ -0,0 +1,44 @@
+package hlt;
+
+/**
+ * Tracks how much of the current turn's time limit is left.
+ *
+ * The clock is restarted by {@link GameConnection#updateMap(GameMap)} as soon as the new frame is parsed; strategy code
+ * checks {@link #isExpired()} between units of work and sends its best moves so far once the budget runs out.
+ */
+public class TurnBudget {
+
+    /** Time the engine allows a bot per turn before it is eliminated */
+    public static final long DEFAULT_TURN_MILLIS = 2000;
+
+    /** Part of the turn kept back for reading the frame, sending moves and garbage collection pauses */
+    public static final long DEFAULT_SAFETY_MARGIN_MILLIS = 500;
+
+    private final long usableNanos;
+    private volatile long startNanos;
+
+    public TurnBudget() {
+        this(DEFAULT_TURN_MILLIS, DEFAULT_SAFETY_MARGIN_MILLIS);
+    }
+
+    public TurnBudget(final long turnMillis, final long safetyMarginMillis) {
+        usableNanos = (turnMillis - safetyMarginMillis) * 1_000_000L;
+        startNanos = System.nanoTime();
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public long getRemainingNanos() {
+        return usableNanos - getElapsedNanos();
+    }
+
+    public boolean isExpired() {
+        return getRemainingNanos() <= 0;
+    }
+}
@@ -0,0 +1,96 @@
+package hlt;
+
+/**
+ * Outcome of one simulated game, indexed by player id.
+ */
+public class GameResult {
+
+    private final long seed;
+    private final int turns;
+    private final String[] botNames;
+    private final int[] ranking;
+    private final int[] shipCounts;
+    private final Throwable[] errors;
+    private final long[][] turnNanos;
+
+    GameResult(final long seed, final int turns, final String[] botNames, final int[] ranking,
+               final int[] shipCounts, final Throwable[] errors, final long[][] turnNanos) {
+        this.seed = seed;
+        this.turns = turns;
+        this.botNames = botNames;
+        this.ranking = ranking;
+        this.shipCounts = shipCounts;
+        this.errors = errors;
+        this.turnNanos = turnNanos;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public int getPlayerCount() {
+        return botNames.length;
+    }
+
+    public String getBotName(final int player) {
+        return botNames[player];
+    }
+
+    public int getWinner() {
+        return ranking[0];
+    }
+
+    /**
+     * @return 1 for the winner, up to the number of players
+     */
+    public int getRank(final int player) {
+        for (int i = 0; i < ranking.length; ++i) {
+            if (ranking[i] == player) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("No such player: " + player);
+    }
+
+    /**
+     * @return ships the player had when the game ended
+     */
+    public int getShipCount(final int player) {
+        return shipCounts[player];
+    }
+
+    /**
+     * @return why the player's bot was removed from the game (an exception it threw, or a timeout), null if it
+     * played to the end
+     */
+    public Throwable getError(final int player) {
+        return errors[player];
+    }
+
+    /**
+     * @return nanoseconds the player's bot spent on each turn it answered, from frame parsed to moves sent
+     */
+    public long[] getTurnNanos(final int player) {
+        return turnNanos[player];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder out = new StringBuilder();
+        out.append("seed ").append(seed).append(", ").append(turns).append(" turns:");
+        for (int rank = 0; rank < ranking.length; ++rank) {
+            final int player = ranking[rank];
+            out.append(' ').append(rank + 1).append(". player ").append(player)
+                    .append(" (").append(botNames[player]).append(", ").append(shipCounts[player]).append(" ships");
+            if (errors[player] != null) {
+                out.append(", ").append(errors[player]);
+            }
+            out.append(')');
+        }
+        return out.toString();
+    }
+}
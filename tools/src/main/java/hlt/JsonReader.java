@@ -0,0 +1,414 @@
+package hlt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser for JSON, reading one token at a time so documents far larger than memory can be walked.
+ *
+ * Values are consumed with the next* and begin/end methods in document order; {@link #peek()} tells which
+ * one comes next and {@link #skipValue()} passes over a whole value without building it. Malformed input is
+ * reported as an IOException naming the character offset.
+ */
+public class JsonReader implements Closeable {
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // what the parser expects at each nesting level
+    private static final int DOCUMENT = 0;
+    private static final int DOCUMENT_DONE = 1;
+    private static final int ARRAY_FIRST = 2;
+    private static final int ARRAY_NEXT = 3;
+    private static final int OBJECT_FIRST = 4;
+    private static final int OBJECT_NEXT = 5;
+    private static final int OBJECT_VALUE = 6;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private long consumedBefore;
+
+    private int[] stack = new int[32];
+    private int depth = 1;
+
+    private Token peeked;
+    private final StringBuilder text = new StringBuilder();
+
+    public JsonReader(final Reader in) {
+        this.in = in;
+        stack[0] = DOCUMENT;
+    }
+
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        final int scope = stack[depth - 1];
+        switch (scope) {
+            case ARRAY_FIRST:
+            case ARRAY_NEXT: {
+                int c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (scope == ARRAY_NEXT) {
+                    expect(c, ',');
+                    c = nextNonWhitespace();
+                }
+                stack[depth - 1] = ARRAY_NEXT;
+                return peeked = valueToken(c);
+            }
+            case OBJECT_FIRST:
+            case OBJECT_NEXT: {
+                int c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (scope == OBJECT_NEXT) {
+                    expect(c, ',');
+                    c = nextNonWhitespace();
+                }
+                expect(c, '"');
+                return peeked = Token.NAME;
+            }
+            case OBJECT_VALUE: {
+                expect(nextNonWhitespace(), ':');
+                stack[depth - 1] = OBJECT_NEXT;
+                return peeked = valueToken(nextNonWhitespace());
+            }
+            case DOCUMENT: {
+                stack[depth - 1] = DOCUMENT_DONE;
+                return peeked = valueToken(nextNonWhitespace());
+            }
+            default: {
+                final int c = nextNonWhitespace();
+                if (c != -1) {
+                    throw syntaxError("Unexpected data after the document");
+                }
+                return peeked = Token.END_DOCUMENT;
+            }
+        }
+    }
+
+    public boolean hasNext() throws IOException {
+        final Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        consume(Token.BEGIN_OBJECT);
+        push(OBJECT_FIRST);
+    }
+
+    public void endObject() throws IOException {
+        consume(Token.END_OBJECT);
+        --depth;
+    }
+
+    public void beginArray() throws IOException {
+        consume(Token.BEGIN_ARRAY);
+        push(ARRAY_FIRST);
+    }
+
+    public void endArray() throws IOException {
+        consume(Token.END_ARRAY);
+        --depth;
+    }
+
+    public String nextName() throws IOException {
+        consume(Token.NAME);
+        stack[depth - 1] = OBJECT_VALUE;
+        return readString();
+    }
+
+    public String nextString() throws IOException {
+        consume(Token.STRING);
+        return readString();
+    }
+
+    public double nextDouble() throws IOException {
+        consume(Token.NUMBER);
+        final String number = readNumber();
+        try {
+            return Double.parseDouble(number);
+        }
+        catch (NumberFormatException e) {
+            throw syntaxError("Malformed number " + number);
+        }
+    }
+
+    public int nextInt() throws IOException {
+        consume(Token.NUMBER);
+        final String number = readNumber();
+        try {
+            return Integer.parseInt(number);
+        }
+        catch (NumberFormatException e) {
+            throw syntaxError("Expected an integer but was " + number);
+        }
+    }
+
+    public boolean nextBoolean() throws IOException {
+        consume(Token.BOOLEAN);
+        if (read() == 't') {
+            readLiteral("rue");
+            return true;
+        }
+        readLiteral("alse");
+        return false;
+    }
+
+    public void nextNull() throws IOException {
+        consume(Token.NULL);
+        readLiteral("null");
+    }
+
+    /**
+     * Skips the next value, or the next name together with its value.
+     */
+    public void skipValue() throws IOException {
+        int nesting = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    ++nesting;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    ++nesting;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    --nesting;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    --nesting;
+                    break;
+                case NAME:
+                    nextName();
+                    // the value that follows belongs to the name being skipped
+                    if (nesting == 0) {
+                        skipValue();
+                    }
+                    break;
+                case STRING:
+                    consume(Token.STRING);
+                    skipString();
+                    break;
+                case NUMBER:
+                    consume(Token.NUMBER);
+                    readNumber();
+                    break;
+                case BOOLEAN:
+                    nextBoolean();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                default:
+                    throw syntaxError("Unexpected end of document");
+            }
+        } while (nesting > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void consume(final Token expected) throws IOException {
+        final Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private void push(final int scope) {
+        if (depth == stack.length) {
+            final int[] grown = new int[depth * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = scope;
+    }
+
+    /**
+     * Classifies the value starting with c. Strings are left positioned after the opening quote, other values
+     * at their first character.
+     */
+    private Token valueToken(final int c) throws IOException {
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                --position;
+                return Token.BOOLEAN;
+            case 'n':
+                --position;
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    --position;
+                    return Token.NUMBER;
+                }
+                throw syntaxError(c == -1 ? "Unexpected end of document" : "Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private String readString() throws IOException {
+        text.setLength(0);
+        for (;;) {
+            // copy runs of plain characters straight from the buffer
+            int start = position;
+            while (position < limit) {
+                final char c = buffer[position];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                ++position;
+            }
+            text.append(buffer, start, position - start);
+            if (position == limit) {
+                if (!fillBuffer()) {
+                    throw syntaxError("Unterminated string");
+                }
+                continue;
+            }
+
+            if (buffer[position++] == '"') {
+                return text.toString();
+            }
+            final int escaped = read();
+            switch (escaped) {
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u':
+                    int value = 0;
+                    for (int i = 0; i < 4; ++i) {
+                        final int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw syntaxError("Malformed unicode escape");
+                        }
+                        value = value * 16 + digit;
+                    }
+                    text.append((char) value);
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    text.append((char) escaped);
+                    break;
+                default:
+                    throw syntaxError("Invalid escape sequence");
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        for (;;) {
+            final int c = read();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                read();
+            } else if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private String readNumber() throws IOException {
+        text.setLength(0);
+        for (;;) {
+            if (position == limit && !fillBuffer()) {
+                break;
+            }
+            final char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                text.append(c);
+                ++position;
+            } else {
+                break;
+            }
+        }
+        return text.toString();
+    }
+
+    private void readLiteral(final String rest) throws IOException {
+        for (int i = 0; i < rest.length(); ++i) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Malformed literal");
+            }
+        }
+    }
+
+    private void expect(final int c, final char expected) throws IOException {
+        if (c != expected) {
+            throw syntaxError("Expected '" + expected + "'"
+                    + (c == -1 ? " but the document ended" : " but was '" + (char) c + "'"));
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        for (;;) {
+            final int c = read();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fillBuffer() throws IOException {
+        // keep the last character so a value token can step back onto it
+        if (limit > 0) {
+            buffer[0] = buffer[limit - 1];
+            consumedBefore += limit - 1;
+            position = 1;
+            limit = 1;
+        }
+        final int count = in.read(buffer, limit, buffer.length - limit);
+        if (count <= 0) {
+            return false;
+        }
+        limit += count;
+        return true;
+    }
+
+    private IOException syntaxError(final String message) {
+        return new IOException(message + " at character " + (consumedBefore + position));
+    }
+}
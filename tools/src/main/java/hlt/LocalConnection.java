@@ -0,0 +1,158 @@
+package hlt;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process connection between one bot and a {@link Simulator}.
+ *
+ * The bot runs on its own thread and blocks in {@link #updateMap(GameMap)} until the simulator publishes the next
+ * frame, exactly as it would block on the engine's pipe. Frames are passed in the engine's text format and parsed
+ * with {@link FrameReader}, so the bot sees the same maps it would in a real game.
+ */
+public class LocalConnection implements GameConnection {
+
+    // Markers are compared by identity.
+    private static final byte[] GAME_OVER = new byte[0];
+    private static final List<Move> BOT_STOPPED = new ArrayList<>();
+
+    private final int playerId;
+    private final int width;
+    private final int height;
+    private final TurnBudget turnBudget;
+
+    private final BlockingQueue<byte[]> frames = new LinkedBlockingQueue<>();
+    private final BlockingQueue<List<Move>> moves = new LinkedBlockingQueue<>();
+
+    private volatile String botName;
+    private volatile Throwable error;
+
+    // Guarded by this; written on the bot's thread, read once the game is over.
+    private long turnStart;
+    private long[] turnNanos = new long[64];
+    private int turnCount;
+
+    public LocalConnection(final int playerId, final int width, final int height, final TurnBudget turnBudget) {
+        this.playerId = playerId;
+        this.width = width;
+        this.height = height;
+        this.turnBudget = turnBudget;
+    }
+
+    @Override
+    public GameMap initialize(final String botName) {
+        this.botName = botName;
+        final GameMap gameMap = new GameMap(width, height, playerId);
+        if (!updateMap(gameMap)) {
+            throw new IllegalStateException("Game ended before the initial map was sent");
+        }
+        return gameMap;
+    }
+
+    @Override
+    public boolean updateMap(final GameMap map) {
+        final byte[] frame;
+        try {
+            frame = frames.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (frame == GAME_OVER) {
+            return false;
+        }
+
+        final FrameReader reader = new FrameReader(new ByteArrayInputStream(frame));
+        try {
+            reader.readFrame();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        map.updateMap(reader);
+        turnBudget.start();
+        synchronized (this) {
+            turnStart = System.nanoTime();
+        }
+        return true;
+    }
+
+    @Override
+    public void sendMoves(final Iterable<Move> sent) {
+        final List<Move> copy = new ArrayList<>();
+        for (final Move move : sent) {
+            copy.add(move);
+        }
+        synchronized (this) {
+            if (turnCount == turnNanos.length) {
+                turnNanos = Arrays.copyOf(turnNanos, turnCount * 2);
+            }
+            turnNanos[turnCount++] = System.nanoTime() - turnStart;
+        }
+        moves.add(copy);
+    }
+
+    @Override
+    public TurnBudget getTurnBudget() {
+        return turnBudget;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * @return the name the bot gave in {@link #initialize(String)}, null before that
+     */
+    public String getBotName() {
+        return botName;
+    }
+
+    /**
+     * @return for each turn the bot answered, nanoseconds from its frame being parsed to its moves being sent
+     */
+    public synchronized long[] getTurnNanos() {
+        return Arrays.copyOf(turnNanos, turnCount);
+    }
+
+    /**
+     * @return what the bot's thread died of, or null
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Called on the bot's thread once the bot returns or throws, so the simulator stops waiting for it.
+     */
+    void botStopped(final Throwable cause) {
+        error = cause;
+        moves.add(BOT_STOPPED);
+    }
+
+    void publishFrame(final byte[] frame) {
+        frames.add(frame);
+    }
+
+    void publishGameOver() {
+        frames.add(GAME_OVER);
+    }
+
+    /**
+     * Waits for the moves answering the last published frame.
+     *
+     * @return the moves, or null if the bot stopped or did not answer within timeoutMillis
+     */
+    List<Move> awaitMoves(final long timeoutMillis) throws InterruptedException {
+        final List<Move> received = moves.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        return received == BOT_STOPPED ? null : received;
+    }
+}
@@ -0,0 +1,262 @@
+package hlt;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Plays games between in-process bots on the {@link Simulator}, many at a time.
+ *
+ * A bot is anything that plays a game over a {@link GameConnection}, such as {@code MyBot::play}. Each bot runs on
+ * its own thread and each game on a worker of a fixed pool, so a batch of games keeps every core busy with no
+ * engine binary and no process start-up.
+ *
+ * Usage: {@code java hlt.MatchRunner [--games N] [--threads N] [--seed N] [--turns N] [--size WxH]
+ * [--turn-millis N] BotClass BotClass...}, where each bot class has a {@code public static void
+ * play(GameConnection)} method. Prints one line per game, then each seat's wins.
+ *
+ * The offline tools are kept out of {@code hlt/} so they are not packaged with the bot; build them with it, from the
+ * project root: {@code javac -d out MyBot.java hlt/*.java tools/src/main/java/hlt/*.java}, then run with
+ * {@code java -cp out}.
+ */
+public class MatchRunner {
+
+    /** How long a bot may take to answer a frame before it is removed from the game, like the engine's limit */
+    public static final long RESPONSE_TIMEOUT_MILLIS = 30_000;
+
+    private static final long BOT_EXIT_WAIT_MILLIS = 1000;
+
+    private final int width;
+    private final int height;
+    private final int maxTurns;
+    private final long turnMillis;
+
+    public MatchRunner() {
+        this(Simulator.DEFAULT_WIDTH, Simulator.DEFAULT_HEIGHT, Simulator.DEFAULT_MAX_TURNS,
+                TurnBudget.DEFAULT_TURN_MILLIS);
+    }
+
+    /**
+     * @param turnMillis turn time limit the bots budget for; with many games sharing the cores, a lower limit
+     *                   keeps bots from stretching every turn to the full two seconds
+     */
+    public MatchRunner(final int width, final int height, final int maxTurns, final long turnMillis) {
+        this.width = width;
+        this.height = height;
+        this.maxTurns = maxTurns;
+        this.turnMillis = turnMillis;
+    }
+
+    /**
+     * Plays one game on the calling thread; bots[i] plays as player i.
+     */
+    public GameResult play(final List<? extends Consumer<GameConnection>> bots, final long seed)
+            throws InterruptedException {
+        final int playerCount = bots.size();
+        final Simulator simulator = new Simulator(width, height, playerCount, maxTurns, seed);
+        final LocalConnection[] connections = new LocalConnection[playerCount];
+        final Thread[] threads = new Thread[playerCount];
+        final Throwable[] errors = new Throwable[playerCount];
+        final boolean[] active = new boolean[playerCount];
+
+        for (int player = 0; player < playerCount; ++player) {
+            final LocalConnection connection = new LocalConnection(player, width, height,
+                    new TurnBudget(turnMillis, turnMillis * TurnBudget.DEFAULT_SAFETY_MARGIN_MILLIS
+                            / TurnBudget.DEFAULT_TURN_MILLIS));
+            final Consumer<GameConnection> bot = bots.get(player);
+            connections[player] = connection;
+            threads[player] = new Thread(() -> {
+                Throwable cause = null;
+                try {
+                    bot.accept(connection);
+                }
+                catch (Throwable e) {
+                    cause = e;
+                }
+                finally {
+                    connection.botStopped(cause);
+                }
+            }, "game-" + seed + "-player-" + player);
+            threads[player].setDaemon(true);
+            threads[player].start();
+            active[player] = true;
+        }
+
+        // the initial map goes out once for initialization and again as the first turn
+        byte[] frame = simulator.frame();
+        for (final LocalConnection connection : connections) {
+            connection.publishFrame(frame);
+            connection.publishFrame(frame);
+        }
+
+        final List<List<Move>> moves = new ArrayList<>(playerCount);
+        while (!simulator.isOver()) {
+            moves.clear();
+            for (int player = 0; player < playerCount; ++player) {
+                List<Move> playerMoves = null;
+                if (active[player]) {
+                    playerMoves = connections[player].awaitMoves(RESPONSE_TIMEOUT_MILLIS);
+                    if (playerMoves == null) {
+                        errors[player] = connections[player].getError() != null
+                                ? connections[player].getError()
+                                : new TimeoutException("No moves within " + RESPONSE_TIMEOUT_MILLIS + " ms");
+                        simulator.eliminate(player);
+                    }
+                }
+                moves.add(playerMoves);
+            }
+            simulator.step(moves);
+
+            frame = simulator.frame();
+            for (int player = 0; player < playerCount; ++player) {
+                if (active[player] && (errors[player] != null || !simulator.isAlive(player))) {
+                    active[player] = false;
+                    connections[player].publishGameOver();
+                } else if (active[player] && !simulator.isOver()) {
+                    connections[player].publishFrame(frame);
+                }
+            }
+        }
+
+        final String[] botNames = new String[playerCount];
+        final int[] shipCounts = new int[playerCount];
+        final long[][] turnNanos = new long[playerCount][];
+        for (int player = 0; player < playerCount; ++player) {
+            if (active[player]) {
+                connections[player].publishGameOver();
+            }
+            threads[player].join(BOT_EXIT_WAIT_MILLIS);
+            botNames[player] = connections[player].getBotName();
+            shipCounts[player] = simulator.getShipCount(player);
+            turnNanos[player] = connections[player].getTurnNanos();
+        }
+        return new GameResult(seed, simulator.getTurn(), botNames, simulator.getRanking(), shipCounts, errors,
+                turnNanos);
+    }
+
+    /**
+     * Plays games with seeds firstSeed, firstSeed + 1, ... on the given number of threads.
+     *
+     * @return results in seed order
+     */
+    public List<GameResult> playAll(final List<? extends Consumer<GameConnection>> bots, final long firstSeed,
+                                    final int games, final int threads)
+            throws InterruptedException, ExecutionException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<GameResult>> futures = new ArrayList<>(games);
+            for (int game = 0; game < games; ++game) {
+                final long seed = firstSeed + game;
+                futures.add(executor.submit(() -> play(bots, seed)));
+            }
+            final List<GameResult> results = new ArrayList<>(games);
+            for (final Future<GameResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return a bot that plays through className's {@code public static void play(GameConnection)}
+     */
+    public static Consumer<GameConnection> botClass(final String className) throws ReflectiveOperationException {
+        final Method play = Class.forName(className).getMethod("play", GameConnection.class);
+        return connection -> {
+            try {
+                play.invoke(null, connection);
+            }
+            catch (InvocationTargetException e) {
+                throw new IllegalStateException(className + " failed", e.getCause());
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * @return a bot that plays through className's {@code public static void play(GameConnection, Properties)},
+     * passing it the given parameters
+     */
+    public static Consumer<GameConnection> botClass(final String className, final Properties parameters)
+            throws ReflectiveOperationException {
+        final Method play = Class.forName(className).getMethod("play", GameConnection.class, Properties.class);
+        return connection -> {
+            try {
+                play.invoke(null, connection, parameters);
+            }
+            catch (InvocationTargetException e) {
+                throw new IllegalStateException(className + " failed", e.getCause());
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    public static void main(final String[] args) throws Exception {
+        int games = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.currentTimeMillis();
+        int turns = Simulator.DEFAULT_MAX_TURNS;
+        int width = Simulator.DEFAULT_WIDTH;
+        int height = Simulator.DEFAULT_HEIGHT;
+        long turnMillis = TurnBudget.DEFAULT_TURN_MILLIS;
+        final List<Consumer<GameConnection>> bots = new ArrayList<>();
+
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--turns":
+                    turns = Integer.parseInt(args[++i]);
+                    break;
+                case "--size":
+                    final String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                    break;
+                case "--turn-millis":
+                    turnMillis = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    bots.add(botClass(args[i]));
+            }
+        }
+        if (bots.isEmpty() || bots.size() > Constants.MAX_PLAYERS) {
+            System.err.println("usage: java hlt.MatchRunner [--games N] [--threads N] [--seed N] [--turns N]"
+                    + " [--size WxH] [--turn-millis N] BotClass BotClass...");
+            System.exit(2);
+        }
+
+        final List<GameResult> results = new MatchRunner(width, height, turns, turnMillis)
+                .playAll(bots, seed, games, threads);
+        final int[] wins = new int[bots.size()];
+        for (final GameResult result : results) {
+            System.out.println(result);
+            ++wins[result.getWinner()];
+        }
+        for (int player = 0; player < wins.length; ++player) {
+            System.out.println("player " + player + ": " + wins[player] + " wins of " + results.size());
+        }
+    }
+}
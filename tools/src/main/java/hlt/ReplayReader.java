@@ -0,0 +1,524 @@
+package hlt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reads recorded games (.hlt replays: zstd-compressed JSON) one frame at a time.
+ *
+ * Nothing is decompressed to disk or held in memory beyond the current frame. The replay's keys are sorted, so
+ * the static planet data comes after the frames; the header is therefore read in a first streaming pass, and
+ * the frames in a second one. Each frame can be rendered in the engine's text format, exactly as a bot would
+ * have received it, or loaded into a {@link GameMap} through the same parser the live game uses.
+ *
+ * Usage: {@code java hlt.ReplayReader replay.hlt [playerId]} prints the engine's side of the conversation
+ * for that player, so {@code java hlt.ReplayReader game.hlt 0 | java MyBot > /dev/null} replays a game offline.
+ */
+public class ReplayReader implements Closeable {
+
+    private static final Comparator<ShipState> BY_OWNER_AND_ID =
+            Comparator.comparingInt((ShipState ship) -> ship.owner).thenComparingInt(ship -> ship.id);
+    private static final Comparator<PlanetState> BY_ID = Comparator.comparingInt(planet -> planet.id);
+
+    private final File replay;
+
+    private int width;
+    private int height;
+    private int playerCount;
+    private int frameCount;
+    private final List<String> playerNames = new ArrayList<>();
+
+    // static planet data from the header, indexed by planet id
+    private double[] planetX = new double[0];
+    private double[] planetY = new double[0];
+    private double[] planetRadius = new double[0];
+    private int[] planetDockingSpots = new int[0];
+
+    private final JsonReader frames;
+    private int frameIndex = -1;
+
+    // current frame; records are reused from frame to frame
+    private final List<ShipState> ships = new ArrayList<>();
+    private int shipCount;
+    private final List<PlanetState> planets = new ArrayList<>();
+    private int planetCount;
+
+    public ReplayReader(final File replay) throws IOException {
+        this.replay = replay;
+        readHeader();
+
+        frames = open();
+        frames.beginObject();
+        while (frames.hasNext()) {
+            if (frames.nextName().equals("frames")) {
+                frames.beginArray();
+                return;
+            }
+            frames.skipValue();
+        }
+        frames.close();
+        throw new IOException(replay + ": no frames in replay");
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public List<String> getPlayerNames() {
+        return Collections.unmodifiableList(playerNames);
+    }
+
+    /**
+     * @return the number of frames the replay declares; the first is the initial map
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return index of the current frame, -1 before the first call to {@link #nextFrame()}
+     */
+    public int getFrameIndex() {
+        return frameIndex;
+    }
+
+    /**
+     * Advances to the next frame.
+     *
+     * @return false once every frame has been read
+     */
+    public boolean nextFrame() throws IOException {
+        if (!frames.hasNext()) {
+            return false;
+        }
+        shipCount = 0;
+        planetCount = 0;
+
+        frames.beginObject();
+        while (frames.hasNext()) {
+            final String name = frames.nextName();
+            if (name.equals("ships")) {
+                frames.beginObject();
+                while (frames.hasNext()) {
+                    final int owner = Integer.parseInt(frames.nextName());
+                    frames.beginObject();
+                    while (frames.hasNext()) {
+                        frames.nextName();
+                        readShip(owner);
+                    }
+                    frames.endObject();
+                }
+                frames.endObject();
+            } else if (name.equals("planets")) {
+                frames.beginObject();
+                while (frames.hasNext()) {
+                    frames.nextName();
+                    readPlanet();
+                }
+                frames.endObject();
+            } else {
+                frames.skipValue();
+            }
+        }
+        frames.endObject();
+
+        // JSON keys sort as strings ("10" before "2"); the engine lists entities by numeric id
+        ships.subList(0, shipCount).sort(BY_OWNER_AND_ID);
+        planets.subList(0, planetCount).sort(BY_ID);
+        ++frameIndex;
+        return true;
+    }
+
+    /**
+     * Appends the current frame as the engine sends it, newline terminated. Coordinates are rounded to four
+     * decimals like the engine's.
+     */
+    public void appendFrame(final StringBuilder out) {
+        out.append(playerCount);
+        int next = 0;
+        for (int player = 0; player < playerCount; ++player) {
+            int end = next;
+            while (end < shipCount && ships.get(end).owner == player) {
+                ++end;
+            }
+            out.append(' ').append(player).append(' ').append(end - next);
+            for (; next < end; ++next) {
+                final ShipState ship = ships.get(next);
+                out.append(' ').append(ship.id).append(' ');
+                appendFixed(out, ship.x);
+                out.append(' ');
+                appendFixed(out, ship.y);
+                out.append(' ').append(ship.health).append(' ');
+                appendFixed(out, ship.velocityX);
+                out.append(' ');
+                appendFixed(out, ship.velocityY);
+                out.append(' ').append(ship.dockingStatus)
+                        .append(' ').append(ship.dockedPlanet)
+                        .append(' ').append(ship.dockingProgress)
+                        .append(' ').append(ship.cooldown);
+            }
+        }
+
+        out.append(' ').append(planetCount);
+        for (int i = 0; i < planetCount; ++i) {
+            final PlanetState planet = planets.get(i);
+            out.append(' ').append(planet.id).append(' ');
+            appendFixed(out, planetX[planet.id]);
+            out.append(' ');
+            appendFixed(out, planetY[planet.id]);
+            out.append(' ').append(planet.health).append(' ');
+            appendFixed(out, planetRadius[planet.id]);
+            out.append(' ').append(planetDockingSpots[planet.id])
+                    .append(' ').append(planet.currentProduction)
+                    .append(' ').append(planet.remainingProduction)
+                    .append(' ').append(planet.owner >= 0 ? 1 : 0)
+                    .append(' ').append(Math.max(planet.owner, 0))
+                    .append(' ').append(planet.dockedShipCount);
+            for (int k = 0; k < planet.dockedShipCount; ++k) {
+                out.append(' ').append(planet.dockedShips[k]);
+            }
+        }
+        out.append('\n');
+    }
+
+    public String getFrameText() {
+        final StringBuilder out = new StringBuilder(shipCount * 48 + planetCount * 64);
+        appendFrame(out);
+        return out.toString();
+    }
+
+    /**
+     * Loads the current frame into map with the engine frame parser, as {@code Networking.updateMap} would.
+     */
+    public GameMap loadFrame(final GameMap map) {
+        final FrameReader reader = new FrameReader(
+                new ByteArrayInputStream(getFrameText().getBytes(StandardCharsets.US_ASCII)));
+        try {
+            reader.readFrame();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return map.updateMap(reader);
+    }
+
+    /**
+     * @return a new map seen by playerId, holding the current frame
+     */
+    public GameMap newMap(final int playerId) {
+        return loadFrame(new GameMap(width, height, playerId));
+    }
+
+    @Override
+    public void close() throws IOException {
+        frames.close();
+    }
+
+    private JsonReader open() throws IOException {
+        return new JsonReader(new InputStreamReader(
+                new ZstdInputStream(new BufferedInputStream(new FileInputStream(replay))), StandardCharsets.UTF_8));
+    }
+
+    private void readHeader() throws IOException {
+        try (JsonReader header = open()) {
+            header.beginObject();
+            while (header.hasNext()) {
+                switch (header.nextName()) {
+                    case "width":
+                        width = header.nextInt();
+                        break;
+                    case "height":
+                        height = header.nextInt();
+                        break;
+                    case "num_players":
+                        playerCount = header.nextInt();
+                        break;
+                    case "num_frames":
+                        frameCount = header.nextInt();
+                        break;
+                    case "player_names":
+                        header.beginArray();
+                        while (header.hasNext()) {
+                            playerNames.add(header.nextString());
+                        }
+                        header.endArray();
+                        break;
+                    case "planets":
+                        header.beginArray();
+                        while (header.hasNext()) {
+                            readPlanetHeader(header);
+                        }
+                        header.endArray();
+                        break;
+                    default:
+                        header.skipValue();
+                }
+            }
+            header.endObject();
+        }
+    }
+
+    private void readPlanetHeader(final JsonReader header) throws IOException {
+        int id = -1;
+        double x = 0;
+        double y = 0;
+        double radius = 0;
+        int dockingSpots = 0;
+
+        header.beginObject();
+        while (header.hasNext()) {
+            switch (header.nextName()) {
+                case "id":
+                    id = header.nextInt();
+                    break;
+                case "x":
+                    x = header.nextDouble();
+                    break;
+                case "y":
+                    y = header.nextDouble();
+                    break;
+                case "r":
+                    radius = header.nextDouble();
+                    break;
+                case "docking_spots":
+                    dockingSpots = header.nextInt();
+                    break;
+                default:
+                    header.skipValue();
+            }
+        }
+        header.endObject();
+
+        if (id < 0) {
+            throw new IOException(replay + ": planet without an id");
+        }
+        if (id >= planetX.length) {
+            final int size = Math.max(id + 1, planetX.length * 2);
+            planetX = Arrays.copyOf(planetX, size);
+            planetY = Arrays.copyOf(planetY, size);
+            planetRadius = Arrays.copyOf(planetRadius, size);
+            planetDockingSpots = Arrays.copyOf(planetDockingSpots, size);
+        }
+        planetX[id] = x;
+        planetY[id] = y;
+        planetRadius[id] = radius;
+        planetDockingSpots[id] = dockingSpots;
+    }
+
+    private void readShip(final int owner) throws IOException {
+        if (shipCount == ships.size()) {
+            ships.add(new ShipState());
+        }
+        final ShipState ship = ships.get(shipCount++);
+        ship.owner = owner;
+        ship.dockingStatus = 0;
+        ship.dockedPlanet = 0;
+        ship.dockingProgress = 0;
+
+        frames.beginObject();
+        while (frames.hasNext()) {
+            switch (frames.nextName()) {
+                case "id":
+                    ship.id = frames.nextInt();
+                    break;
+                case "x":
+                    ship.x = frames.nextDouble();
+                    break;
+                case "y":
+                    ship.y = frames.nextDouble();
+                    break;
+                case "health":
+                    ship.health = frames.nextInt();
+                    break;
+                case "vel_x":
+                    ship.velocityX = frames.nextDouble();
+                    break;
+                case "vel_y":
+                    ship.velocityY = frames.nextDouble();
+                    break;
+                case "cooldown":
+                    ship.cooldown = frames.nextInt();
+                    break;
+                case "docking":
+                    readDocking(ship);
+                    break;
+                default:
+                    frames.skipValue();
+            }
+        }
+        frames.endObject();
+    }
+
+    private void readDocking(final ShipState ship) throws IOException {
+        frames.beginObject();
+        while (frames.hasNext()) {
+            switch (frames.nextName()) {
+                case "status":
+                    ship.dockingStatus = dockingStatus(frames.nextString());
+                    break;
+                case "planet_id":
+                    ship.dockedPlanet = frames.nextInt();
+                    break;
+                case "turns_left":
+                    ship.dockingProgress = frames.nextInt();
+                    break;
+                default:
+                    frames.skipValue();
+            }
+        }
+        frames.endObject();
+    }
+
+    private int dockingStatus(final String status) throws IOException {
+        for (final Ship.DockingStatus value : Ship.DockingStatus.values()) {
+            if (value.name().equalsIgnoreCase(status)) {
+                return value.ordinal();
+            }
+        }
+        throw new IOException(replay + ": unknown docking status " + status);
+    }
+
+    private void readPlanet() throws IOException {
+        if (planetCount == planets.size()) {
+            planets.add(new PlanetState());
+        }
+        final PlanetState planet = planets.get(planetCount++);
+        planet.id = -1;
+        planet.owner = -1;
+        planet.dockedShipCount = 0;
+
+        frames.beginObject();
+        while (frames.hasNext()) {
+            switch (frames.nextName()) {
+                case "id":
+                    planet.id = frames.nextInt();
+                    break;
+                case "health":
+                    planet.health = frames.nextInt();
+                    break;
+                case "current_production":
+                    planet.currentProduction = frames.nextInt();
+                    break;
+                case "remaining_production":
+                    planet.remainingProduction = frames.nextInt();
+                    break;
+                case "owner":
+                    if (frames.peek() == JsonReader.Token.NULL) {
+                        frames.nextNull();
+                    } else {
+                        planet.owner = frames.nextInt();
+                    }
+                    break;
+                case "docked_ships":
+                    frames.beginArray();
+                    while (frames.hasNext()) {
+                        planet.addDockedShip(frames.nextInt());
+                    }
+                    frames.endArray();
+                    break;
+                default:
+                    frames.skipValue();
+            }
+        }
+        frames.endObject();
+
+        if (planet.id < 0 || planet.id >= planetX.length) {
+            throw new IOException(replay + ": frame " + (frameIndex + 1) + " has unknown planet " + planet.id);
+        }
+    }
+
+    /**
+     * Rounds to four decimals without going through String.format, which dominates the cost of a frame.
+     */
+    static void appendFixed(final StringBuilder out, final double value) {
+        long scaled = Math.round(value * 10000);
+        if (scaled < 0) {
+            out.append('-');
+            scaled = -scaled;
+        }
+        out.append(scaled / 10000).append('.');
+        final long fraction = scaled % 10000;
+        for (long digit = 1000; digit > 1 && fraction < digit; digit /= 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static class ShipState {
+        int owner;
+        int id;
+        double x;
+        double y;
+        int health;
+        double velocityX;
+        double velocityY;
+        int dockingStatus;
+        int dockedPlanet;
+        int dockingProgress;
+        int cooldown;
+    }
+
+    private static class PlanetState {
+        int id;
+        int health;
+        int currentProduction;
+        int remainingProduction;
+        int owner;
+        int[] dockedShips = new int[8];
+        int dockedShipCount;
+
+        void addDockedShip(final int shipId) {
+            if (dockedShipCount == dockedShips.length) {
+                dockedShips = Arrays.copyOf(dockedShips, dockedShipCount * 2);
+            }
+            dockedShips[dockedShipCount++] = shipId;
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: java hlt.ReplayReader replay.hlt [playerId]");
+            System.exit(2);
+        }
+        final int playerId = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+        final Writer out = new OutputStreamWriter(new BufferedOutputStream(System.out), StandardCharsets.US_ASCII);
+        try (ReplayReader reader = new ReplayReader(new File(args[0]))) {
+            out.write(playerId + "\n" + reader.getWidth() + " " + reader.getHeight() + "\n");
+            final StringBuilder frame = new StringBuilder();
+            while (reader.nextFrame()) {
+                frame.setLength(0);
+                reader.appendFrame(frame);
+                // the initial map goes out once for initialization and again as the first turn
+                if (reader.getFrameIndex() == 0) {
+                    out.append(frame);
+                }
+                out.append(frame);
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,654 @@
+package hlt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Simplified Halite II engine: one game's state and the rules that advance it a turn at a time.
+ *
+ * Follows the rules in {@link Constants} closely enough for self-play, but resolves each turn in fixed phases
+ * instead of the engine's continuous event simulation:
+ * <ol>
+ * <li>docking and undocking ships advance one turn, weapon cooldowns run down;</li>
+ * <li>commands are applied: thrust sets the ship's velocity for this turn, dock and undock start docking;</li>
+ * <li>ships move; ships whose paths meet are both destroyed, ships flying into a planet are destroyed and damage
+ * it by their health, ships leaving the map are destroyed;</li>
+ * <li>every undocked ship with its weapon ready splits {@link Constants#WEAPON_DAMAGE} between the enemy ships
+ * within {@link Constants#WEAPON_RADIUS}; damage is applied simultaneously;</li>
+ * <li>planets without health explode, destroying their docked ships and damaging ships nearby;</li>
+ * <li>owned planets produce {@link Constants#BASE_PRODUCTIVITY} per docked ship and spawn a ship for every
+ * {@link Constants#PRODUCTION_PER_SHIP}.</li>
+ * </ol>
+ * Resources are infinite, as in the recorded games. Maps are mirror symmetric, so no seat has an advantage.
+ * Not thread safe; each game has its own simulator.
+ */
+public class Simulator {
+
+    public static final int DEFAULT_WIDTH = 240;
+    public static final int DEFAULT_HEIGHT = 160;
+    public static final int DEFAULT_MAX_TURNS = 300;
+
+    public static final int SHIPS_PER_PLAYER = 3;
+    public static final int PLANETS_PER_PLAYER = 6;
+
+    private static final int RESOURCES_PER_RADIUS = 144;
+    private static final double MIN_PLANET_RADIUS = 3.0;
+    private static final double PLANET_GAP = 4.0;
+    private static final double SPAWN_CLEARANCE = 12.0;
+    private static final int PLACEMENT_ATTEMPTS = 2000;
+    private static final int SPAWN_ANGLES = 24;
+
+    private final int width;
+    private final int height;
+    private final int playerCount;
+    private final int maxTurns;
+
+    // live entities in id order
+    private final List<SimShip> ships = new ArrayList<>();
+    private final Map<Integer, SimShip> shipsById = new HashMap<>();
+    private final List<SimPlanet> planets = new ArrayList<>();
+    private final Map<Integer, SimPlanet> planetsById = new HashMap<>();
+    private int nextShipId;
+
+    private int turn;
+    // turn on which each player lost its last ship, -1 while it has ships
+    private final int[] eliminatedAt;
+
+    public Simulator(final int playerCount, final long seed) {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT, playerCount, DEFAULT_MAX_TURNS, seed);
+    }
+
+    public Simulator(final int width, final int height, final int playerCount, final int maxTurns, final long seed) {
+        if (playerCount < 1 || playerCount > Constants.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Unsupported number of players: " + playerCount);
+        }
+        this.width = width;
+        this.height = height;
+        this.playerCount = playerCount;
+        this.maxTurns = maxTurns;
+        eliminatedAt = new int[playerCount];
+        Arrays.fill(eliminatedAt, -1);
+
+        generateMap(new Random(seed));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * @return number of turns played so far
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    public boolean isOver() {
+        if (turn >= maxTurns) {
+            return true;
+        }
+        int alive = 0;
+        for (int player = 0; player < playerCount; ++player) {
+            if (isAlive(player)) {
+                ++alive;
+            }
+        }
+        return playerCount == 1 ? alive == 0 : alive <= 1;
+    }
+
+    public boolean isAlive(final int player) {
+        return eliminatedAt[player] < 0;
+    }
+
+    public int getShipCount(final int player) {
+        int count = 0;
+        for (final SimShip ship : ships) {
+            if (ship.owner == player) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return players from first to last: survivors before eliminated players, later eliminations before earlier
+     * ones, then more ships, then more total ship health
+     */
+    public int[] getRanking() {
+        final long[] score = new long[playerCount];
+        for (final SimShip ship : ships) {
+            score[ship.owner] += ((long) 1 << 20) + ship.health;
+        }
+        final Integer[] order = new Integer[playerCount];
+        for (int player = 0; player < playerCount; ++player) {
+            order[player] = player;
+        }
+        Arrays.sort(order, (a, b) -> {
+            final int survivedA = isAlive(a) ? Integer.MAX_VALUE : eliminatedAt[a];
+            final int survivedB = isAlive(b) ? Integer.MAX_VALUE : eliminatedAt[b];
+            if (survivedA != survivedB) {
+                return Integer.compare(survivedB, survivedA);
+            }
+            return Long.compare(score[b], score[a]);
+        });
+        final int[] ranking = new int[playerCount];
+        for (int i = 0; i < playerCount; ++i) {
+            ranking[i] = order[i];
+        }
+        return ranking;
+    }
+
+    /**
+     * @return the current state in the engine's frame format, newline terminated
+     */
+    public byte[] frame() {
+        final StringBuilder out = new StringBuilder(ships.size() * 48 + planets.size() * 64);
+        out.append(playerCount);
+        for (int player = 0; player < playerCount; ++player) {
+            out.append(' ').append(player).append(' ').append(getShipCount(player));
+            for (final SimShip ship : ships) {
+                if (ship.owner != player) {
+                    continue;
+                }
+                out.append(' ').append(ship.id).append(' ');
+                ReplayReader.appendFixed(out, ship.x);
+                out.append(' ');
+                ReplayReader.appendFixed(out, ship.y);
+                out.append(' ').append(ship.health).append(' ');
+                ReplayReader.appendFixed(out, ship.velocityX);
+                out.append(' ');
+                ReplayReader.appendFixed(out, ship.velocityY);
+                out.append(' ').append(ship.status.ordinal())
+                        .append(' ').append(ship.status == Ship.DockingStatus.Undocked ? 0 : ship.planet)
+                        .append(' ').append(ship.progress)
+                        .append(' ').append(ship.cooldown);
+            }
+        }
+
+        out.append(' ').append(planets.size());
+        for (final SimPlanet planet : planets) {
+            out.append(' ').append(planet.id).append(' ');
+            ReplayReader.appendFixed(out, planet.x);
+            out.append(' ');
+            ReplayReader.appendFixed(out, planet.y);
+            out.append(' ').append(planet.health).append(' ');
+            ReplayReader.appendFixed(out, planet.radius);
+            out.append(' ').append(planet.dockingSpots)
+                    .append(' ').append(planet.currentProduction)
+                    .append(' ').append(planet.remainingProduction)
+                    .append(' ').append(planet.owner >= 0 ? 1 : 0)
+                    .append(' ').append(Math.max(planet.owner, 0))
+                    .append(' ').append(planet.docked.size());
+            for (final SimShip ship : planet.docked) {
+                out.append(' ').append(ship.id);
+            }
+        }
+        return out.append('\n').toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Removes a player from the game, as the engine does with a bot that crashed or timed out.
+     */
+    public void eliminate(final int player) {
+        for (final SimShip ship : ships) {
+            if (ship.owner == player) {
+                ship.health = 0;
+            }
+        }
+        removeDestroyedShips();
+        updateEliminations();
+    }
+
+    /**
+     * Plays one turn.
+     *
+     * @param movesByPlayer each player's moves, indexed by player id; null for a player that sent nothing
+     */
+    public void step(final List<? extends List<Move>> movesByPlayer) {
+        ++turn;
+
+        advanceDocking();
+        final List<SimShip> dockRequests = new ArrayList<>();
+        for (int player = 0; player < playerCount; ++player) {
+            final List<Move> moves = player < movesByPlayer.size() ? movesByPlayer.get(player) : null;
+            if (moves != null && isAlive(player)) {
+                applyMoves(player, moves, dockRequests);
+            }
+        }
+        startDocking(dockRequests);
+
+        moveShips();
+        fight();
+        explodePlanets();
+        removeDestroyedShips();
+        produce();
+
+        updateEliminations();
+    }
+
+    private void advanceDocking() {
+        for (final SimShip ship : ships) {
+            if (ship.cooldown > 0) {
+                --ship.cooldown;
+            }
+            if (ship.status == Ship.DockingStatus.Docking && --ship.progress == 0) {
+                ship.status = Ship.DockingStatus.Docked;
+            } else if (ship.status == Ship.DockingStatus.Undocking && --ship.progress == 0) {
+                ship.status = Ship.DockingStatus.Undocked;
+                leavePlanet(ship);
+            }
+        }
+    }
+
+    private void applyMoves(final int player, final List<Move> moves, final List<SimShip> dockRequests) {
+        for (final Move move : moves) {
+            final SimShip ship = shipsById.get(move.getShip().getId());
+            // one command per ship and turn; later ones are ignored like the engine's duplicates
+            if (ship == null || ship.owner != player || ship.commandTurn == turn) {
+                continue;
+            }
+            ship.commandTurn = turn;
+
+            switch (move.getType()) {
+                case Thrust:
+                    if (ship.status == Ship.DockingStatus.Undocked) {
+                        final ThrustMove thrustMove = (ThrustMove) move;
+                        final int thrust = Math.max(0, Math.min(Constants.MAX_SPEED, thrustMove.getThrust()));
+                        final double angle = Math.toRadians(thrustMove.getAngle());
+                        ship.velocityX = thrust * Math.cos(angle);
+                        ship.velocityY = thrust * Math.sin(angle);
+                    }
+                    break;
+                case Dock:
+                    final SimPlanet planet = planetsById.get((int) ((DockMove) move).getDestinationId());
+                    if (ship.status == Ship.DockingStatus.Undocked && planet != null && canDock(ship, planet)) {
+                        ship.planet = planet.id;
+                        dockRequests.add(ship);
+                    }
+                    break;
+                case Undock:
+                    if (ship.status == Ship.DockingStatus.Docked) {
+                        ship.status = Ship.DockingStatus.Undocking;
+                        ship.progress = Constants.DOCK_TURNS;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Docks the requesting ships while their planet has room. Players racing for the same free planet in the same
+     * turn both fail, as in the engine.
+     */
+    private void startDocking(final List<SimShip> dockRequests) {
+        for (final SimShip ship : dockRequests) {
+            final SimPlanet planet = planetsById.get(ship.planet);
+            if (planet.owner >= 0 && planet.owner != ship.owner) {
+                continue;
+            }
+            if (planet.owner < 0 && contested(planet, ship.owner, dockRequests)) {
+                continue;
+            }
+            if (planet.docked.size() < planet.dockingSpots) {
+                planet.owner = ship.owner;
+                planet.docked.add(ship);
+                ship.status = Ship.DockingStatus.Docking;
+                ship.progress = Constants.DOCK_TURNS;
+            }
+        }
+    }
+
+    private static boolean contested(final SimPlanet planet, final int owner, final List<SimShip> dockRequests) {
+        for (final SimShip other : dockRequests) {
+            if (other.planet == planet.id && other.owner != owner) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void moveShips() {
+        final double collisionRadius = 2 * Constants.SHIP_RADIUS;
+        final double maxApproach = 2 * Constants.MAX_SPEED + collisionRadius;
+
+        for (int i = 0; i < ships.size(); ++i) {
+            final SimShip ship = ships.get(i);
+            final double endX = ship.x + ship.velocityX;
+            final double endY = ship.y + ship.velocityY;
+            final boolean moving = ship.velocityX != 0.0 || ship.velocityY != 0.0;
+
+            if (moving) {
+                if (endX < 0 || endX > width || endY < 0 || endY > height) {
+                    ship.destroyed = true;
+                }
+                for (final SimPlanet planet : planets) {
+                    if (Collision.segmentCircleIntersect(ship.x, ship.y, endX, endY,
+                            planet.x, planet.y, planet.radius + Constants.SHIP_RADIUS)) {
+                        planet.health -= ship.health;
+                        ship.destroyed = true;
+                    }
+                }
+            }
+
+            for (int j = i + 1; j < ships.size(); ++j) {
+                final SimShip other = ships.get(j);
+                if (!moving && other.velocityX == 0.0 && other.velocityY == 0.0) {
+                    continue;
+                }
+                final double dx = ship.x - other.x;
+                final double dy = ship.y - other.y;
+                if (dx * dx + dy * dy > maxApproach * maxApproach) {
+                    continue;
+                }
+                // relative motion: the other ship stands still at the origin
+                if (Collision.segmentCircleIntersect(dx, dy,
+                        dx + ship.velocityX - other.velocityX, dy + ship.velocityY - other.velocityY,
+                        0.0, 0.0, collisionRadius)) {
+                    ship.destroyed = true;
+                    other.destroyed = true;
+                }
+            }
+        }
+
+        for (final SimShip ship : ships) {
+            ship.x += ship.velocityX;
+            ship.y += ship.velocityY;
+            ship.velocityX = 0.0;
+            ship.velocityY = 0.0;
+            if (ship.destroyed) {
+                ship.health = 0;
+            }
+        }
+    }
+
+    private void fight() {
+        final double range = Constants.WEAPON_RADIUS + 2 * Constants.SHIP_RADIUS;
+        final double[] damage = new double[ships.size()];
+        final int[] targets = new int[ships.size()];
+
+        for (int i = 0; i < ships.size(); ++i) {
+            final SimShip ship = ships.get(i);
+            if (ship.health <= 0 || ship.status != Ship.DockingStatus.Undocked || ship.cooldown > 0) {
+                continue;
+            }
+            int targetCount = 0;
+            for (int j = 0; j < ships.size(); ++j) {
+                final SimShip other = ships.get(j);
+                if (other.owner == ship.owner || other.health <= 0) {
+                    continue;
+                }
+                final double dx = ship.x - other.x;
+                final double dy = ship.y - other.y;
+                if (dx * dx + dy * dy <= range * range) {
+                    targets[targetCount++] = j;
+                }
+            }
+            if (targetCount > 0) {
+                ship.cooldown = Constants.WEAPON_COOLDOWN;
+                for (int k = 0; k < targetCount; ++k) {
+                    damage[targets[k]] += (double) Constants.WEAPON_DAMAGE / targetCount;
+                }
+            }
+        }
+
+        for (int i = 0; i < ships.size(); ++i) {
+            ships.get(i).health -= (int) damage[i];
+        }
+    }
+
+    private void explodePlanets() {
+        final Iterator<SimPlanet> iterator = planets.iterator();
+        while (iterator.hasNext()) {
+            final SimPlanet planet = iterator.next();
+            if (planet.health > 0) {
+                continue;
+            }
+            iterator.remove();
+            planetsById.remove(planet.id);
+
+            // damage falls off linearly from a full ship's health at the surface to nothing at the explosion radius
+            for (final SimShip ship : ships) {
+                final double distance = Math.hypot(ship.x - planet.x, ship.y - planet.y) - planet.radius;
+                if (planet.docked.contains(ship) || distance <= 0) {
+                    ship.health = 0;
+                } else if (distance < Constants.EXPLOSION_RADIUS) {
+                    ship.health -= (int) (Constants.MAX_SHIP_HEALTH * (1 - distance / Constants.EXPLOSION_RADIUS));
+                }
+            }
+            for (final SimShip ship : planet.docked) {
+                ship.status = Ship.DockingStatus.Undocked;
+            }
+            planet.docked.clear();
+        }
+    }
+
+    private void removeDestroyedShips() {
+        final Iterator<SimShip> iterator = ships.iterator();
+        while (iterator.hasNext()) {
+            final SimShip ship = iterator.next();
+            if (ship.health > 0) {
+                continue;
+            }
+            iterator.remove();
+            shipsById.remove(ship.id);
+            if (ship.status != Ship.DockingStatus.Undocked) {
+                leavePlanet(ship);
+            }
+        }
+    }
+
+    private void leavePlanet(final SimShip ship) {
+        final SimPlanet planet = planetsById.get(ship.planet);
+        if (planet != null && planet.docked.remove(ship) && planet.docked.isEmpty()) {
+            planet.owner = -1;
+        }
+    }
+
+    private void produce() {
+        for (final SimPlanet planet : planets) {
+            if (planet.owner < 0) {
+                continue;
+            }
+            int dockedShips = 0;
+            for (final SimShip ship : planet.docked) {
+                if (ship.status == Ship.DockingStatus.Docked) {
+                    ++dockedShips;
+                }
+            }
+            planet.currentProduction += Constants.BASE_PRODUCTIVITY * dockedShips;
+            while (planet.currentProduction >= Constants.PRODUCTION_PER_SHIP && spawnShip(planet)) {
+                planet.currentProduction -= Constants.PRODUCTION_PER_SHIP;
+            }
+        }
+    }
+
+    /**
+     * Places a new ship by the planet, on the side facing the map center if that spot is free.
+     */
+    private boolean spawnShip(final SimPlanet planet) {
+        final double distance = planet.radius + Constants.SPAWN_RADIUS;
+        final double towardCenter = Math.atan2(height / 2.0 - planet.y, width / 2.0 - planet.x);
+        for (int attempt = 0; attempt < SPAWN_ANGLES; ++attempt) {
+            final int side = attempt % 2 == 0 ? 1 : -1;
+            final double angle = towardCenter + side * ((attempt + 1) / 2) * (2 * Math.PI / SPAWN_ANGLES);
+            final double x = planet.x + distance * Math.cos(angle);
+            final double y = planet.y + distance * Math.sin(angle);
+            if (isFree(x, y)) {
+                addShip(planet.owner, x, y);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isFree(final double x, final double y) {
+        if (x < Constants.SHIP_RADIUS || x > width - Constants.SHIP_RADIUS
+                || y < Constants.SHIP_RADIUS || y > height - Constants.SHIP_RADIUS) {
+            return false;
+        }
+        for (final SimShip ship : ships) {
+            if (Math.hypot(ship.x - x, ship.y - y) < 2 * Constants.SHIP_RADIUS) {
+                return false;
+            }
+        }
+        for (final SimPlanet planet : planets) {
+            if (Math.hypot(planet.x - x, planet.y - y) < planet.radius + Constants.SHIP_RADIUS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void updateEliminations() {
+        for (int player = 0; player < playerCount; ++player) {
+            if (isAlive(player) && getShipCount(player) == 0) {
+                eliminatedAt[player] = turn;
+            }
+        }
+    }
+
+    private static boolean canDock(final SimShip ship, final SimPlanet planet) {
+        return Math.hypot(ship.x - planet.x, ship.y - planet.y)
+                <= Constants.SHIP_RADIUS + Constants.DOCK_RADIUS + planet.radius;
+    }
+
+    private void addShip(final int owner, final double x, final double y) {
+        final SimShip ship = new SimShip(nextShipId++, owner, x, y);
+        ships.add(ship);
+        shipsById.put(ship.id, ship);
+    }
+
+    /**
+     * Spawns are at the quarter points of the map, mirrored between players; planets are placed in player 0's
+     * part of the map and copied into every other part with the same mirroring.
+     */
+    private void generateMap(final Random random) {
+        final boolean quadrants = playerCount > 2;
+        final double[][] spawns = quadrants
+                ? new double[][] { { 0.25, 0.25 }, { 0.75, 0.25 }, { 0.25, 0.75 }, { 0.75, 0.75 } }
+                : new double[][] { { 0.25, 0.5 }, { 0.75, 0.5 } };
+
+        for (int player = 0; player < playerCount; ++player) {
+            final double x = spawns[player][0] * width;
+            final double y = spawns[player][1] * height;
+            addShip(player, x, y);
+            addShip(player, x, y - 3);
+            addShip(player, x, y + 3);
+        }
+
+        final int copies = spawns.length;
+        final double maxRadius = Math.max(MIN_PLANET_RADIUS + 1, Math.min(width, height) / 16.0);
+        final int wanted = PLANETS_PER_PLAYER * copies;
+        final double[] copyX = new double[copies];
+        final double[] copyY = new double[copies];
+
+        for (int attempt = 0; attempt < PLACEMENT_ATTEMPTS && planets.size() < wanted; ++attempt) {
+            final double radius = MIN_PLANET_RADIUS + random.nextDouble() * (maxRadius - MIN_PLANET_RADIUS);
+            final double x = random.nextDouble() * width / 2.0;
+            final double y = random.nextDouble() * (quadrants ? height / 2.0 : height);
+            for (int copy = 0; copy < copies; ++copy) {
+                // copy 1 mirrors x (through the center for two players), copy 2 mirrors y, copy 3 both
+                final boolean mirrorX = (copy & 1) != 0;
+                final boolean mirrorY = quadrants ? (copy & 2) != 0 : mirrorX;
+                copyX[copy] = mirrorX ? width - x : x;
+                copyY[copy] = mirrorY ? height - y : y;
+            }
+            if (canPlace(copyX, copyY, radius, spawns)) {
+                for (int copy = 0; copy < copies; ++copy) {
+                    final SimPlanet planet = new SimPlanet(planets.size(), copyX[copy], copyY[copy], radius);
+                    planets.add(planet);
+                    planetsById.put(planet.id, planet);
+                }
+            }
+        }
+    }
+
+    private boolean canPlace(final double[] xs, final double[] ys, final double radius, final double[][] spawns) {
+        final double margin = radius + PLANET_GAP;
+        for (int copy = 0; copy < xs.length; ++copy) {
+            final double x = xs[copy];
+            final double y = ys[copy];
+            if (x < margin || x > width - margin || y < margin || y > height - margin) {
+                return false;
+            }
+            for (int other = copy + 1; other < xs.length; ++other) {
+                if (Math.hypot(x - xs[other], y - ys[other]) < 2 * radius + PLANET_GAP) {
+                    return false;
+                }
+            }
+            for (final SimPlanet planet : planets) {
+                if (Math.hypot(x - planet.x, y - planet.y) < radius + planet.radius + PLANET_GAP) {
+                    return false;
+                }
+            }
+            for (final double[] spawn : spawns) {
+                if (Math.hypot(x - spawn[0] * width, y - spawn[1] * height) < radius + SPAWN_CLEARANCE) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static class SimShip {
+        final int id;
+        final int owner;
+        double x;
+        double y;
+        int health = Constants.BASE_SHIP_HEALTH;
+        double velocityX;
+        double velocityY;
+        Ship.DockingStatus status = Ship.DockingStatus.Undocked;
+        int planet;
+        int progress;
+        int cooldown;
+        int commandTurn = -1;
+        boolean destroyed;
+
+        SimShip(final int id, final int owner, final double x, final double y) {
+            this.id = id;
+            this.owner = owner;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static class SimPlanet {
+        final int id;
+        final double x;
+        final double y;
+        final double radius;
+        final int dockingSpots;
+        int health;
+        int currentProduction;
+        final int remainingProduction;
+        int owner = -1;
+        final List<SimShip> docked = new ArrayList<>();
+
+        SimPlanet(final int id, final double x, final double y, final double radius) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            dockingSpots = Math.max(1, (int) (radius / 2));
+            health = (int) (radius * Constants.MAX_SHIP_HEALTH);
+            remainingProduction = (int) (radius * RESOURCES_PER_RADIUS);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package hlt;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Plays parameter sets of a bot against a baseline on the {@link Simulator} and reports win rates and turn times.
+ *
+ * Each set plays the configured number of two-player games against the baseline, on the same seeds for every set
+ * and alternating seats so neither side keeps the first-player spot. All games of all sets go to one work-stealing
+ * pool, so a slow set does not hold up the others and every core stays busy until the last game.
+ *
+ * Usage: {@code java hlt.Tournament tournament.properties}, with keys
+ * <pre>
+ * bot = MyBot                  class with a public static void play(GameConnection, Properties)
+ * games = 20                   games per parameter set
+ * threads = 8                  games played at once, all cores by default
+ * seed = 1                     seed of the first game, then seed + 1, ...
+ * turns = 300
+ * size = 240x160
+ * turn.millis = 2000           turn limit the bots budget for
+ * baseline.NAME = value        parameters of the baseline, and defaults for every set
+ * set.LABEL.NAME = value       a named parameter set
+ * sweep.NAME = v1, v2, ...     one set per combination of the swept values, on top of each named set
+ * </pre>
+ * With no sets and no sweeps, the baseline plays itself.
+ */
+public class Tournament {
+
+    private static final String BASELINE = "baseline.";
+    private static final String SET = "set.";
+    private static final String SWEEP = "sweep.";
+
+    private final Properties config;
+
+    public Tournament(final Properties config) {
+        this.config = config;
+    }
+
+    /**
+     * @return parameter sets by label, each already on top of the baseline parameters
+     */
+    public Map<String, Properties> parameterSets() {
+        final Properties baseline = new Properties();
+        final Map<String, Properties> named = new LinkedHashMap<>();
+        final Map<String, String[]> sweeps = new LinkedHashMap<>();
+
+        for (final String key : new TreeSet<>(config.stringPropertyNames())) {
+            final String value = config.getProperty(key).trim();
+            if (key.startsWith(BASELINE)) {
+                baseline.setProperty(key.substring(BASELINE.length()), value);
+            } else if (key.startsWith(SET)) {
+                final int dot = key.indexOf('.', SET.length());
+                if (dot < 0) {
+                    throw new IllegalArgumentException("Expected set.LABEL.NAME: " + key);
+                }
+                named.computeIfAbsent(key.substring(SET.length(), dot), label -> new Properties())
+                        .setProperty(key.substring(dot + 1), value);
+            } else if (key.startsWith(SWEEP)) {
+                sweeps.put(key.substring(SWEEP.length()), value.split("\\s*,\\s*"));
+            }
+        }
+        if (named.isEmpty()) {
+            named.put(sweeps.isEmpty() ? "baseline" : "", new Properties());
+        }
+
+        final Map<String, Properties> sets = new LinkedHashMap<>();
+        for (final Map.Entry<String, Properties> entry : named.entrySet()) {
+            final Properties parameters = new Properties();
+            parameters.putAll(baseline);
+            parameters.putAll(entry.getValue());
+            addSweeps(sets, entry.getKey(), parameters, new ArrayList<>(sweeps.entrySet()), 0);
+        }
+        return sets;
+    }
+
+    private static void addSweeps(final Map<String, Properties> sets, final String label, final Properties parameters,
+                                  final List<Map.Entry<String, String[]>> sweeps, final int next) {
+        if (next == sweeps.size()) {
+            sets.put(label, parameters);
+            return;
+        }
+        final String name = sweeps.get(next).getKey();
+        for (final String value : sweeps.get(next).getValue()) {
+            final Properties swept = new Properties();
+            swept.putAll(parameters);
+            swept.setProperty(name, value);
+            addSweeps(sets, (label.isEmpty() ? "" : label + " ") + name + "=" + value, swept, sweeps, next + 1);
+        }
+    }
+
+    /**
+     * Plays every set and prints one summary line per set once all games are done.
+     */
+    public void run() throws Exception {
+        final String botClass = config.getProperty("bot", "MyBot").trim();
+        final int games = Integer.parseInt(config.getProperty("games", "20").trim());
+        final int threads = Integer.parseInt(config.getProperty("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())).trim());
+        final long firstSeed = Long.parseLong(config.getProperty("seed",
+                String.valueOf(System.currentTimeMillis())).trim());
+        final String[] size = config.getProperty("size",
+                Simulator.DEFAULT_WIDTH + "x" + Simulator.DEFAULT_HEIGHT).trim().split("x");
+        final MatchRunner runner = new MatchRunner(Integer.parseInt(size[0]), Integer.parseInt(size[1]),
+                Integer.parseInt(config.getProperty("turns", String.valueOf(Simulator.DEFAULT_MAX_TURNS)).trim()),
+                Long.parseLong(config.getProperty("turn.millis", String.valueOf(TurnBudget.DEFAULT_TURN_MILLIS)).trim()));
+
+        final Properties baselineParameters = new Properties();
+        for (final String key : config.stringPropertyNames()) {
+            if (key.startsWith(BASELINE)) {
+                baselineParameters.setProperty(key.substring(BASELINE.length()), config.getProperty(key).trim());
+            }
+        }
+        final Consumer<GameConnection> baseline = MatchRunner.botClass(botClass, baselineParameters);
+        final Map<String, Properties> sets = parameterSets();
+
+        final ExecutorService executor = Executors.newWorkStealingPool(threads);
+        final Map<String, List<Future<GameResult>>> futures = new LinkedHashMap<>();
+        try {
+            for (final Map.Entry<String, Properties> set : sets.entrySet()) {
+                final Consumer<GameConnection> candidate = MatchRunner.botClass(botClass, set.getValue());
+                final List<Future<GameResult>> setFutures = new ArrayList<>(games);
+                for (int game = 0; game < games; ++game) {
+                    final long seed = firstSeed + game;
+                    final List<Consumer<GameConnection>> bots = game % 2 == 0
+                            ? Arrays.asList(candidate, baseline)
+                            : Arrays.asList(baseline, candidate);
+                    setFutures.add(executor.submit(() -> runner.play(bots, seed)));
+                }
+                futures.put(set.getKey(), setFutures);
+            }
+
+            System.out.println(String.format("%-48s %6s %6s %6s %6s %10s %10s %10s %10s", "set", "games", "wins",
+                    "win %", "errors", "mean ms", "p50 ms", "p99 ms", "max ms"));
+            for (final Map.Entry<String, List<Future<GameResult>>> set : futures.entrySet()) {
+                int wins = 0;
+                int errors = 0;
+                long[] turnNanos = new long[0];
+                for (int game = 0; game < set.getValue().size(); ++game) {
+                    final GameResult result = set.getValue().get(game).get();
+                    final int seat = game % 2;
+                    if (result.getWinner() == seat) {
+                        ++wins;
+                    }
+                    if (result.getError(seat) != null) {
+                        ++errors;
+                    }
+                    final long[] gameNanos = result.getTurnNanos(seat);
+                    final int offset = turnNanos.length;
+                    turnNanos = Arrays.copyOf(turnNanos, offset + gameNanos.length);
+                    System.arraycopy(gameNanos, 0, turnNanos, offset, gameNanos.length);
+                }
+                System.out.println(summary(set.getKey(), set.getValue().size(), wins, errors, turnNanos));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String summary(final String label, final int games, final int wins, final int errors,
+                                  final long[] turnNanos) {
+        final String winRate = String.format("%-48s %6d %6d %6.1f %6d", label.isEmpty() ? "-" : label, games, wins,
+                games == 0 ? 0.0 : 100.0 * wins / games, errors);
+        if (turnNanos.length == 0) {
+            return winRate;
+        }
+        Arrays.sort(turnNanos);
+        long total = 0;
+        for (final long nanos : turnNanos) {
+            total += nanos;
+        }
+        return winRate + String.format(" %10.2f %10.2f %10.2f %10.2f", total / 1e6 / turnNanos.length,
+                Instrumentation.percentile(turnNanos, 0.50) / 1e6, Instrumentation.percentile(turnNanos, 0.99) / 1e6,
+                turnNanos[turnNanos.length - 1] / 1e6);
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("usage: java hlt.Tournament tournament.properties");
+            System.exit(2);
+        }
+        final Properties config = new Properties();
+        try (InputStream in = new FileInputStream(args[0])) {
+            config.load(in);
+        }
+        new Tournament(config).run();
+    }
+}
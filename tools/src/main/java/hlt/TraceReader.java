@@ -0,0 +1,118 @@
+package hlt;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Offline tool that turns {@link Trace} files into CSV on standard output.
+ *
+ * Usage: {@code java hlt.TraceReader [--decisions] trace...}
+ * By default prints one summary row per turn per file; with --decisions, one row per ship decision instead.
+ * Sorting the turn rows by decision_us or decision_max_us is the quickest way to find slow turns.
+ */
+public class TraceReader {
+
+    public static void main(final String[] args) throws IOException {
+        boolean decisions = false;
+        int first = 0;
+        if (args.length > 0 && args[0].equals("--decisions")) {
+            decisions = true;
+            first = 1;
+        }
+        if (first == args.length) {
+            System.err.println("usage: java hlt.TraceReader [--decisions] trace...");
+            System.exit(2);
+        }
+
+        final PrintStream out = System.out;
+        if (decisions) {
+            out.println("file,turn,ship,pass,decision_us,navigation_corrections");
+        } else {
+            out.println("file,turn,parse_us,decision_us,all_ships,planets,my_ships,moves,thrusts,docks,undocks,"
+                    + "decisions,decision_p50_us,decision_p99_us,decision_max_us,corrections_total,corrections_max");
+        }
+        for (int i = first; i < args.length; ++i) {
+            read(args[i], decisions, out);
+        }
+        out.flush();
+    }
+
+    private static void read(final String file, final boolean decisions, final PrintStream out) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != Trace.MAGIC) {
+                throw new IOException(file + ": not a trace file");
+            }
+            final short version = in.readShort();
+            if (version != Trace.VERSION) {
+                throw new IOException(file + ": unsupported trace version " + version);
+            }
+
+            int[] nanos = new int[256];
+            for (;;) {
+                final int turn;
+                try {
+                    turn = in.readInt();
+                }
+                catch (EOFException e) {
+                    return;
+                }
+                final long parseNanos = in.readLong();
+                final long decisionNanos = in.readLong();
+                final int allShips = in.readInt();
+                final int planets = in.readInt();
+                final int myShips = in.readInt();
+                final int moves = in.readInt();
+                final int thrusts = in.readInt();
+                final int docks = in.readInt();
+                final int undocks = in.readInt();
+                final int decisionCount = in.readInt();
+
+                if (nanos.length < decisionCount) {
+                    nanos = new int[decisionCount];
+                }
+                long correctionsTotal = 0;
+                int correctionsMax = 0;
+                for (int d = 0; d < decisionCount; ++d) {
+                    final int shipId = in.readInt();
+                    final byte pass = in.readByte();
+                    nanos[d] = in.readInt();
+                    final short corrections = in.readShort();
+                    correctionsTotal += corrections;
+                    correctionsMax = Math.max(correctionsMax, corrections);
+                    if (decisions) {
+                        out.println(file + "," + turn + "," + shipId + "," + pass + "," + micros(nanos[d]) + ","
+                                + corrections);
+                    }
+                }
+
+                if (!decisions) {
+                    Arrays.sort(nanos, 0, decisionCount);
+                    out.println(file + "," + turn + "," + micros(parseNanos) + "," + micros(decisionNanos) + ","
+                            + allShips + "," + planets + "," + myShips + ","
+                            + moves + "," + thrusts + "," + docks + "," + undocks + ","
+                            + decisionCount + ","
+                            + micros(percentile(nanos, decisionCount, 0.50)) + ","
+                            + micros(percentile(nanos, decisionCount, 0.99)) + ","
+                            + micros(decisionCount == 0 ? 0 : nanos[decisionCount - 1]) + ","
+                            + correctionsTotal + "," + correctionsMax);
+                }
+            }
+        }
+    }
+
+    private static long percentile(final int[] sorted, final int count, final double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        return sorted[Math.min(count - 1, (int) Math.ceil(fraction * count) - 1)];
+    }
+
+    private static long micros(final long nanos) {
+        return nanos / 1000;
+    }
+}
@@ -0,0 +1,860 @@
+package hlt;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Streaming decompressor for the Zstandard format (RFC 8878), enough to read Halite replay files without any
+ * native library.
+ *
+ * Blocks are decoded one at a time into a buffer that keeps just the window the format allows matches to refer
+ * back to, so memory is bounded by the frame's window size rather than the file size. Supports raw, RLE and
+ * compressed blocks, Huffman and FSE coded sections, concatenated and skippable frames. Dictionaries are not
+ * supported, and content checksums are skipped rather than verified.
+ */
+public class ZstdInputStream extends InputStream {
+
+    private static final int FRAME_MAGIC = 0xFD2FB528;
+    private static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+    private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+
+    private static final int MAX_BLOCK_SIZE = 128 * 1024;
+    private static final long MAX_WINDOW_SIZE = 1L << 27;
+
+    private static final int BLOCK_RAW = 0;
+    private static final int BLOCK_RLE = 1;
+    private static final int BLOCK_COMPRESSED = 2;
+
+    private static final int LITERALS_RAW = 0;
+    private static final int LITERALS_RLE = 1;
+    private static final int LITERALS_COMPRESSED = 2;
+    private static final int LITERALS_TREELESS = 3;
+
+    private static final int MODE_PREDEFINED = 0;
+    private static final int MODE_RLE = 1;
+    private static final int MODE_COMPRESSED = 2;
+    private static final int MODE_REPEAT = 3;
+
+    private static final int MAX_HUFFMAN_BITS = 11;
+
+    private static final int[] LITERALS_LENGTH_BASELINE = {
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+            16, 18, 20, 22, 24, 28, 32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096,
+            8192, 16384, 32768, 65536 };
+    private static final int[] LITERALS_LENGTH_BITS = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, 1, 1, 2, 2, 3, 3, 4, 6, 7, 8, 9, 10, 11, 12,
+            13, 14, 15, 16 };
+    private static final int[] MATCH_LENGTH_BASELINE = {
+            3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18,
+            19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34,
+            35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515, 1027, 2051,
+            4099, 8195, 16387, 32771, 65539 };
+    private static final int[] MATCH_LENGTH_BITS = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11,
+            12, 13, 14, 15, 16 };
+
+    private static final FseTable PREDEFINED_LITERALS_LENGTH = FseTable.fromDistribution(6, new short[] {
+            4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1, 1, 1, 2, 2, 2, 2, 2, 2, 2, 2, 2, 3, 2, 1, 1, 1, 1, 1,
+            -1, -1, -1, -1 });
+    private static final FseTable PREDEFINED_MATCH_LENGTH = FseTable.fromDistribution(6, new short[] {
+            1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1, -1, -1 });
+    private static final FseTable PREDEFINED_OFFSET = FseTable.fromDistribution(5, new short[] {
+            1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1 });
+
+    private final InputStream in;
+
+    // Decoded bytes; [readPosition, writePosition) is not yet handed out, and up to windowSize bytes before
+    // writePosition are kept for matches to copy from.
+    private byte[] output = new byte[0];
+    private int readPosition;
+    private int writePosition;
+
+    private boolean inFrame;
+    private boolean lastBlockDone;
+    private boolean checksumFlag;
+    private int windowSize;
+
+    private byte[] block = new byte[MAX_BLOCK_SIZE];
+    private byte[] literals = new byte[MAX_BLOCK_SIZE];
+    private final int[] repeatedOffsets = new int[3];
+
+    // entropy tables carried over between blocks for treeless literals and repeat modes
+    private HuffmanTable huffmanTable;
+    private FseTable literalsLengthTable;
+    private FseTable offsetTable;
+    private FseTable matchLengthTable;
+
+    public ZstdInputStream(final InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return output[readPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        final int count = Math.min(length, writePosition - readPosition);
+        System.arraycopy(output, readPosition, buffer, offset, count);
+        readPosition += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return writePosition - readPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Decodes blocks until there is output to hand out; returns false at the end of the input.
+     */
+    private boolean fill() throws IOException {
+        while (readPosition == writePosition) {
+            if (!inFrame) {
+                if (!readFrameHeader()) {
+                    return false;
+                }
+            } else if (lastBlockDone) {
+                if (checksumFlag) {
+                    readFully(block, 0, 4);
+                }
+                inFrame = false;
+            } else {
+                decodeBlock();
+            }
+        }
+        return true;
+    }
+
+    private boolean readFrameHeader() throws IOException {
+        for (;;) {
+            final int first = in.read();
+            if (first < 0) {
+                return false;
+            }
+            readFully(block, 1, 3);
+            block[0] = (byte) first;
+            final int magic = readIntLE(block, 0);
+            if ((magic & SKIPPABLE_MAGIC_MASK) == SKIPPABLE_MAGIC) {
+                readFully(block, 0, 4);
+                skipFully(readIntLE(block, 0) & 0xffffffffL);
+                continue;
+            }
+            if (magic != FRAME_MAGIC) {
+                throw new IOException("Not a zstd frame, magic " + Integer.toHexString(magic));
+            }
+            break;
+        }
+
+        final int descriptor = readByte();
+        final int contentSizeFlag = descriptor >>> 6;
+        final boolean singleSegment = (descriptor & 0x20) != 0;
+        checksumFlag = (descriptor & 0x04) != 0;
+        final int dictionaryIdFlag = descriptor & 0x03;
+        if ((descriptor & 0x08) != 0) {
+            throw new IOException("Reserved bit set in zstd frame header");
+        }
+
+        long window = 0;
+        if (!singleSegment) {
+            final int windowDescriptor = readByte();
+            final int windowLog = 10 + (windowDescriptor >>> 3);
+            final long windowBase = 1L << windowLog;
+            window = windowBase + (windowBase / 8) * (windowDescriptor & 0x07);
+        }
+        if (dictionaryIdFlag != 0) {
+            readFully(block, 0, dictionaryIdFlag == 3 ? 4 : dictionaryIdFlag);
+            if (readIntLE(block, 0) != 0 || dictionaryIdFlag != 3) {
+                throw new IOException("zstd dictionaries are not supported");
+            }
+        }
+
+        final int contentSizeBytes = contentSizeFlag == 0 ? (singleSegment ? 1 : 0) : 1 << contentSizeFlag;
+        long contentSize = 0;
+        for (int i = 0; i < contentSizeBytes; ++i) {
+            contentSize |= (long) readByte() << (8 * i);
+        }
+        if (contentSizeBytes == 2) {
+            contentSize += 256;
+        }
+        if (singleSegment) {
+            window = contentSize;
+        }
+        if (window > MAX_WINDOW_SIZE) {
+            throw new IOException("zstd window too large: " + window);
+        }
+
+        windowSize = (int) window;
+        inFrame = true;
+        lastBlockDone = false;
+        repeatedOffsets[0] = 1;
+        repeatedOffsets[1] = 4;
+        repeatedOffsets[2] = 8;
+        huffmanTable = null;
+        literalsLengthTable = null;
+        offsetTable = null;
+        matchLengthTable = null;
+        return true;
+    }
+
+    private void decodeBlock() throws IOException {
+        readFully(block, 0, 3);
+        final int header = (block[0] & 0xff) | (block[1] & 0xff) << 8 | (block[2] & 0xff) << 16;
+        lastBlockDone = (header & 1) != 0;
+        final int type = (header >>> 1) & 3;
+        final int size = header >>> 3;
+
+        switch (type) {
+            case BLOCK_RAW:
+                ensureOutputSpace(size);
+                readFully(output, writePosition, size);
+                writePosition += size;
+                break;
+            case BLOCK_RLE:
+                ensureOutputSpace(size);
+                final byte value = (byte) readByte();
+                Arrays.fill(output, writePosition, writePosition + size, value);
+                writePosition += size;
+                break;
+            case BLOCK_COMPRESSED:
+                if (size > MAX_BLOCK_SIZE) {
+                    throw new IOException("zstd block too large: " + size);
+                }
+                readFully(block, 0, size);
+                ensureOutputSpace(MAX_BLOCK_SIZE);
+                decodeCompressedBlock(size);
+                break;
+            default:
+                throw new IOException("Reserved zstd block type");
+        }
+    }
+
+    /**
+     * Makes room for count more bytes after writePosition, dropping history that is both handed out and older
+     * than the window.
+     */
+    private void ensureOutputSpace(final int count) {
+        if (writePosition + count <= output.length) {
+            return;
+        }
+        final int keepFrom = Math.max(0, Math.min(readPosition, writePosition - windowSize));
+        final int kept = writePosition - keepFrom;
+        final byte[] target = kept + count <= output.length
+                ? output
+                : new byte[Math.max(kept + count, Math.min(output.length * 2, windowSize + 2 * MAX_BLOCK_SIZE))];
+        System.arraycopy(output, keepFrom, target, 0, kept);
+        output = target;
+        readPosition -= keepFrom;
+        writePosition = kept;
+    }
+
+    private void decodeCompressedBlock(final int blockSize) throws IOException {
+        int position = 0;
+
+        // literals section
+        final int literalsHeader = block[position] & 0xff;
+        final int literalsType = literalsHeader & 3;
+        final int sizeFormat = (literalsHeader >>> 2) & 3;
+        final int literalsSize;
+
+        if (literalsType == LITERALS_RAW || literalsType == LITERALS_RLE) {
+            switch (sizeFormat) {
+                case 1:
+                    literalsSize = (literalsHeader >>> 4) + ((block[position + 1] & 0xff) << 4);
+                    position += 2;
+                    break;
+                case 3:
+                    literalsSize = (literalsHeader >>> 4) + ((block[position + 1] & 0xff) << 4)
+                            + ((block[position + 2] & 0xff) << 12);
+                    position += 3;
+                    break;
+                default:
+                    literalsSize = literalsHeader >>> 3;
+                    position += 1;
+            }
+            if (literalsType == LITERALS_RAW) {
+                System.arraycopy(block, position, literals, 0, literalsSize);
+                position += literalsSize;
+            } else {
+                Arrays.fill(literals, 0, literalsSize, block[position]);
+                position += 1;
+            }
+        } else {
+            final int compressedSize;
+            final boolean fourStreams = sizeFormat != 0;
+            final int b1 = block[position + 1] & 0xff;
+            final int b2 = block[position + 2] & 0xff;
+            switch (sizeFormat) {
+                case 0:
+                case 1:
+                    literalsSize = (literalsHeader >>> 4) + ((b1 & 0x3f) << 4);
+                    compressedSize = (b1 >>> 6) + (b2 << 2);
+                    position += 3;
+                    break;
+                case 2:
+                    literalsSize = (literalsHeader >>> 4) + (b1 << 4) + ((b2 & 0x03) << 12);
+                    compressedSize = (b2 >>> 2) + ((block[position + 3] & 0xff) << 6);
+                    position += 4;
+                    break;
+                default:
+                    literalsSize = (literalsHeader >>> 4) + (b1 << 4) + ((b2 & 0x3f) << 12);
+                    compressedSize = (b2 >>> 6) + ((block[position + 3] & 0xff) << 2)
+                            + ((block[position + 4] & 0xff) << 10);
+                    position += 5;
+            }
+            if (literalsSize > MAX_BLOCK_SIZE) {
+                throw new IOException("zstd literals too large: " + literalsSize);
+            }
+
+            int streamsStart = position;
+            if (literalsType == LITERALS_COMPRESSED) {
+                huffmanTable = new HuffmanTable();
+                streamsStart += huffmanTable.read(block, position, position + compressedSize);
+            } else if (huffmanTable == null) {
+                throw new IOException("zstd treeless literals without a previous Huffman table");
+            }
+            final int streamsEnd = position + compressedSize;
+
+            if (fourStreams) {
+                final int size1 = readShortLE(block, streamsStart);
+                final int size2 = readShortLE(block, streamsStart + 2);
+                final int size3 = readShortLE(block, streamsStart + 4);
+                final int start1 = streamsStart + 6;
+                final int start2 = start1 + size1;
+                final int start3 = start2 + size2;
+                final int start4 = start3 + size3;
+                final int segment = (literalsSize + 3) / 4;
+                huffmanTable.decode(block, start1, start2, literals, 0, segment);
+                huffmanTable.decode(block, start2, start3, literals, segment, segment);
+                huffmanTable.decode(block, start3, start4, literals, 2 * segment, segment);
+                huffmanTable.decode(block, start4, streamsEnd, literals, 3 * segment, literalsSize - 3 * segment);
+            } else {
+                huffmanTable.decode(block, streamsStart, streamsEnd, literals, 0, literalsSize);
+            }
+            position = streamsEnd;
+        }
+
+        // sequences section
+        final int b0 = block[position++] & 0xff;
+        final int sequenceCount;
+        if (b0 < 128) {
+            sequenceCount = b0;
+        } else if (b0 < 255) {
+            sequenceCount = ((b0 - 128) << 8) + (block[position++] & 0xff);
+        } else {
+            sequenceCount = (block[position] & 0xff) + ((block[position + 1] & 0xff) << 8) + 0x7F00;
+            position += 2;
+        }
+
+        if (sequenceCount == 0) {
+            System.arraycopy(literals, 0, output, writePosition, literalsSize);
+            writePosition += literalsSize;
+            return;
+        }
+
+        final int modes = block[position++] & 0xff;
+        position = readSequenceTable(modes >>> 6, position, 9, 35, 0);
+        position = readSequenceTable((modes >>> 4) & 3, position, 8, 31, 1);
+        position = readSequenceTable((modes >>> 2) & 3, position, 9, 52, 2);
+
+        executeSequences(sequenceCount, position, blockSize, literalsSize);
+    }
+
+    /**
+     * Reads the table of one sequence symbol type (0 literals length, 1 offset, 2 match length) and returns the
+     * position after its description.
+     */
+    private int readSequenceTable(final int mode, final int position, final int maxAccuracyLog,
+                                  final int maxSymbol, final int kind) throws IOException {
+        FseTable table;
+        int next = position;
+        switch (mode) {
+            case MODE_PREDEFINED:
+                table = kind == 0 ? PREDEFINED_LITERALS_LENGTH : kind == 1 ? PREDEFINED_OFFSET : PREDEFINED_MATCH_LENGTH;
+                break;
+            case MODE_RLE:
+                table = FseTable.singleSymbol(block[next++] & 0xff);
+                break;
+            case MODE_COMPRESSED:
+                final short[] distribution = new short[maxSymbol + 1];
+                final int[] accuracyLog = new int[1];
+                next += FseTable.readDistribution(block, next, maxAccuracyLog, distribution, accuracyLog);
+                table = FseTable.fromDistribution(accuracyLog[0], distribution);
+                break;
+            default:
+                table = kind == 0 ? literalsLengthTable : kind == 1 ? offsetTable : matchLengthTable;
+                if (table == null) {
+                    throw new IOException("zstd repeat mode without a previous table");
+                }
+        }
+        if (kind == 0) {
+            literalsLengthTable = table;
+        } else if (kind == 1) {
+            offsetTable = table;
+        } else {
+            matchLengthTable = table;
+        }
+        return next;
+    }
+
+    private void executeSequences(final int sequenceCount, final int start, final int end, final int literalsSize)
+            throws IOException {
+        final BackwardBitReader bits = new BackwardBitReader(block, start, end);
+        int literalsLengthState = bits.read(literalsLengthTable.accuracyLog);
+        int offsetState = bits.read(offsetTable.accuracyLog);
+        int matchLengthState = bits.read(matchLengthTable.accuracyLog);
+
+        final int blockStart = writePosition;
+        int literalsPosition = 0;
+        for (int i = 0; i < sequenceCount; ++i) {
+            final int offsetCode = offsetTable.symbols[offsetState];
+            final int matchLengthCode = matchLengthTable.symbols[matchLengthState];
+            final int literalsLengthCode = literalsLengthTable.symbols[literalsLengthState];
+            if (offsetCode > 31 || matchLengthCode > 52 || literalsLengthCode > 35) {
+                throw new IOException("Corrupted zstd sequence");
+            }
+
+            final long offsetValue = (1L << offsetCode) + bits.read(offsetCode);
+            final int matchLength = MATCH_LENGTH_BASELINE[matchLengthCode] + bits.read(MATCH_LENGTH_BITS[matchLengthCode]);
+            final int literalsLength = LITERALS_LENGTH_BASELINE[literalsLengthCode]
+                    + bits.read(LITERALS_LENGTH_BITS[literalsLengthCode]);
+
+            if (i + 1 < sequenceCount) {
+                literalsLengthState = literalsLengthTable.nextState(literalsLengthState, bits);
+                matchLengthState = matchLengthTable.nextState(matchLengthState, bits);
+                offsetState = offsetTable.nextState(offsetState, bits);
+            }
+
+            final int offset = resolveOffset(offsetValue, literalsLength);
+
+            if (literalsPosition + literalsLength > literalsSize
+                    || writePosition - blockStart + literalsLength + matchLength > MAX_BLOCK_SIZE) {
+                throw new IOException("Corrupted zstd sequence lengths");
+            }
+            System.arraycopy(literals, literalsPosition, output, writePosition, literalsLength);
+            literalsPosition += literalsLength;
+            writePosition += literalsLength;
+
+            if (offset > writePosition || offset > windowSize) {
+                throw new IOException("zstd match offset out of range: " + offset);
+            }
+            int from = writePosition - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(output, from, output, writePosition, matchLength);
+                writePosition += matchLength;
+            } else {
+                // overlapping copy repeats the last offset bytes
+                for (int k = 0; k < matchLength; ++k) {
+                    output[writePosition++] = output[from++];
+                }
+            }
+        }
+
+        final int remaining = literalsSize - literalsPosition;
+        System.arraycopy(literals, literalsPosition, output, writePosition, remaining);
+        writePosition += remaining;
+    }
+
+    private int resolveOffset(final long offsetValue, final int literalsLength) {
+        if (offsetValue > 3) {
+            final int offset = (int) (offsetValue - 3);
+            repeatedOffsets[2] = repeatedOffsets[1];
+            repeatedOffsets[1] = repeatedOffsets[0];
+            repeatedOffsets[0] = offset;
+            return offset;
+        }
+
+        final int repeat = (int) offsetValue + (literalsLength == 0 ? 1 : 0);
+        final int offset;
+        switch (repeat) {
+            case 1:
+                return repeatedOffsets[0];
+            case 2:
+                offset = repeatedOffsets[1];
+                repeatedOffsets[1] = repeatedOffsets[0];
+                break;
+            case 3:
+                offset = repeatedOffsets[2];
+                repeatedOffsets[2] = repeatedOffsets[1];
+                repeatedOffsets[1] = repeatedOffsets[0];
+                break;
+            default:
+                offset = repeatedOffsets[0] - 1;
+                repeatedOffsets[2] = repeatedOffsets[1];
+                repeatedOffsets[1] = repeatedOffsets[0];
+        }
+        repeatedOffsets[0] = offset;
+        return offset;
+    }
+
+    private int readByte() throws IOException {
+        final int value = in.read();
+        if (value < 0) {
+            throw new EOFException("Truncated zstd stream");
+        }
+        return value;
+    }
+
+    private void readFully(final byte[] buffer, final int offset, final int length) throws IOException {
+        int done = 0;
+        while (done < length) {
+            final int count = in.read(buffer, offset + done, length - done);
+            if (count < 0) {
+                throw new EOFException("Truncated zstd stream");
+            }
+            done += count;
+        }
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            final long skipped = in.skip(count);
+            if (skipped <= 0) {
+                readByte();
+                --count;
+            } else {
+                count -= skipped;
+            }
+        }
+    }
+
+    private static int readIntLE(final byte[] data, final int offset) {
+        return (data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8
+                | (data[offset + 2] & 0xff) << 16 | (data[offset + 3] & 0xff) << 24;
+    }
+
+    private static int readShortLE(final byte[] data, final int offset) {
+        return (data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8;
+    }
+
+    private static int highestBit(final int value) {
+        return 31 - Integer.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Reads a bitstream written forward and read backward, starting from the padding marker in its last byte.
+     * Reading past the start yields zeros, which some decoders rely on near the end of a stream.
+     */
+    private static final class BackwardBitReader {
+        private final byte[] data;
+        private final int start;
+        private final int end;
+        private long bitsRemaining;
+
+        BackwardBitReader(final byte[] data, final int start, final int end) throws IOException {
+            if (end <= start || data[end - 1] == 0) {
+                throw new IOException("Corrupted zstd bitstream");
+            }
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            bitsRemaining = (long) (end - start - 1) * 8 + highestBit(data[end - 1] & 0xff);
+        }
+
+        int read(final int count) {
+            final int value = peek(count);
+            bitsRemaining -= count;
+            return value;
+        }
+
+        int peek(final int count) {
+            if (count == 0) {
+                return 0;
+            }
+            final long offset = bitsRemaining - count;
+            if (offset >= 0) {
+                return extract(offset, count);
+            }
+            if (offset + count <= 0) {
+                return 0;
+            }
+            return extract(0, (int) (count + offset)) << (int) -offset;
+        }
+
+        void skip(final int count) {
+            bitsRemaining -= count;
+        }
+
+        boolean isOverflowed() {
+            return bitsRemaining < 0;
+        }
+
+        boolean isFinished() {
+            return bitsRemaining == 0;
+        }
+
+        private int extract(final long bitOffset, final int count) {
+            final int first = start + (int) (bitOffset >>> 3);
+            long accumulator = 0;
+            for (int i = 0, index = first; i < 5 && index < end; ++i, ++index) {
+                accumulator |= (long) (data[index] & 0xff) << (8 * i);
+            }
+            return (int) ((accumulator >>> (bitOffset & 7)) & ((1L << count) - 1));
+        }
+    }
+
+    /**
+     * Finite State Entropy decoding table.
+     */
+    private static final class FseTable {
+        final int accuracyLog;
+        final int[] symbols;
+        final int[] bitCounts;
+        final int[] baselines;
+
+        private FseTable(final int accuracyLog) {
+            this.accuracyLog = accuracyLog;
+            symbols = new int[1 << accuracyLog];
+            bitCounts = new int[1 << accuracyLog];
+            baselines = new int[1 << accuracyLog];
+        }
+
+        int nextState(final int state, final BackwardBitReader bits) {
+            return baselines[state] + bits.read(bitCounts[state]);
+        }
+
+        static FseTable singleSymbol(final int symbol) {
+            final FseTable table = new FseTable(0);
+            table.symbols[0] = symbol;
+            return table;
+        }
+
+        /**
+         * Builds the table from normalized probabilities, where -1 marks a "less than one" probability.
+         */
+        static FseTable fromDistribution(final int accuracyLog, final short[] distribution) {
+            final FseTable table = new FseTable(accuracyLog);
+            final int size = 1 << accuracyLog;
+            final int[] nextStates = new int[distribution.length];
+
+            int highThreshold = size - 1;
+            for (int symbol = 0; symbol < distribution.length; ++symbol) {
+                if (distribution[symbol] == -1) {
+                    table.symbols[highThreshold--] = symbol;
+                    nextStates[symbol] = 1;
+                } else {
+                    nextStates[symbol] = distribution[symbol];
+                }
+            }
+
+            final int step = (size >>> 1) + (size >>> 3) + 3;
+            final int mask = size - 1;
+            int position = 0;
+            for (int symbol = 0; symbol < distribution.length; ++symbol) {
+                for (int i = 0; i < distribution[symbol]; ++i) {
+                    table.symbols[position] = symbol;
+                    do {
+                        position = (position + step) & mask;
+                    } while (position > highThreshold);
+                }
+            }
+
+            for (int state = 0; state < size; ++state) {
+                final int symbol = table.symbols[state];
+                final int next = nextStates[symbol]++;
+                final int bitCount = accuracyLog - highestBit(next);
+                table.bitCounts[state] = bitCount;
+                table.baselines[state] = (next << bitCount) - size;
+            }
+            return table;
+        }
+
+        /**
+         * Reads a table description into distribution; returns the number of bytes it took.
+         */
+        static int readDistribution(final byte[] data, final int start, final int maxAccuracyLog,
+                                    final short[] distribution, final int[] accuracyLogOut) throws IOException {
+            long bitPosition = (long) start * 8;
+            final int accuracyLog = (int) readForward(data, bitPosition, 4) + 5;
+            bitPosition += 4;
+            if (accuracyLog > maxAccuracyLog) {
+                throw new IOException("zstd FSE accuracy log too large: " + accuracyLog);
+            }
+
+            int remaining = (1 << accuracyLog) + 1;
+            int threshold = 1 << accuracyLog;
+            int bitCount = accuracyLog + 1;
+            int symbol = 0;
+            while (remaining > 1 && symbol < distribution.length) {
+                final int max = (2 * threshold - 1) - remaining;
+                final int low = (int) readForward(data, bitPosition, bitCount - 1);
+                int count;
+                if (low < max) {
+                    count = low;
+                    bitPosition += bitCount - 1;
+                } else {
+                    count = (int) readForward(data, bitPosition, bitCount);
+                    if (count >= threshold) {
+                        count -= max;
+                    }
+                    bitPosition += bitCount;
+                }
+                --count;
+                remaining -= count < 0 ? -count : count;
+                distribution[symbol++] = (short) count;
+
+                if (count == 0) {
+                    // zero probabilities are followed by 2-bit repeat counts of further zeros
+                    for (;;) {
+                        final int repeat = (int) readForward(data, bitPosition, 2);
+                        bitPosition += 2;
+                        for (int k = 0; k < repeat && symbol < distribution.length; ++k) {
+                            distribution[symbol++] = 0;
+                        }
+                        if (repeat != 3) {
+                            break;
+                        }
+                    }
+                }
+                while (remaining < threshold) {
+                    --bitCount;
+                    threshold >>>= 1;
+                }
+            }
+            if (remaining != 1) {
+                throw new IOException("Corrupted zstd FSE table description");
+            }
+            Arrays.fill(distribution, symbol, distribution.length, (short) 0);
+            accuracyLogOut[0] = accuracyLog;
+            return (int) ((bitPosition + 7) / 8 - start);
+        }
+
+        private static long readForward(final byte[] data, final long bitPosition, final int count) {
+            final int first = (int) (bitPosition >>> 3);
+            long accumulator = 0;
+            for (int i = 0; i < 4 && first + i < data.length; ++i) {
+                accumulator |= (long) (data[first + i] & 0xff) << (8 * i);
+            }
+            return (accumulator >>> (bitPosition & 7)) & ((1L << count) - 1);
+        }
+    }
+
+    /**
+     * Single-symbol Huffman decoding table, indexed by the next maxBits bits of the stream.
+     */
+    private static final class HuffmanTable {
+        private int maxBits;
+        private byte[] symbols;
+        private byte[] bitCounts;
+
+        /**
+         * Reads the tree description at start; returns the number of bytes it took.
+         */
+        int read(final byte[] data, final int start, final int end) throws IOException {
+            final int header = data[start] & 0xff;
+            final int[] weights = new int[256];
+            int weightCount;
+            int size;
+
+            if (header >= 128) {
+                weightCount = header - 127;
+                size = 1 + (weightCount + 1) / 2;
+                for (int i = 0; i < weightCount; ++i) {
+                    final int packed = data[start + 1 + i / 2] & 0xff;
+                    weights[i] = i % 2 == 0 ? packed >>> 4 : packed & 0x0f;
+                }
+            } else {
+                size = 1 + header;
+                final short[] distribution = new short[256];
+                final int[] accuracyLog = new int[1];
+                final int tableSize = FseTable.readDistribution(data, start + 1, 6, distribution, accuracyLog);
+                final FseTable table = FseTable.fromDistribution(accuracyLog[0], distribution);
+                final BackwardBitReader bits = new BackwardBitReader(data, start + 1 + tableSize, start + size);
+
+                // two interleaved states over one stream, until the stream runs out
+                int state1 = bits.read(table.accuracyLog);
+                int state2 = bits.read(table.accuracyLog);
+                weightCount = 0;
+                for (;;) {
+                    weights[weightCount++] = table.symbols[state1];
+                    state1 = table.nextState(state1, bits);
+                    if (bits.isOverflowed()) {
+                        weights[weightCount++] = table.symbols[state2];
+                        break;
+                    }
+                    weights[weightCount++] = table.symbols[state2];
+                    state2 = table.nextState(state2, bits);
+                    if (bits.isOverflowed()) {
+                        weights[weightCount++] = table.symbols[state1];
+                        break;
+                    }
+                    if (weightCount >= 255) {
+                        throw new IOException("Corrupted zstd Huffman weights");
+                    }
+                }
+            }
+            if (start + size > end) {
+                throw new IOException("Corrupted zstd Huffman tree description");
+            }
+
+            // the last symbol's weight is implied by the others summing to a power of two
+            int total = 0;
+            for (int i = 0; i < weightCount; ++i) {
+                if (weights[i] > 0) {
+                    total += 1 << (weights[i] - 1);
+                }
+            }
+            if (total == 0) {
+                throw new IOException("Corrupted zstd Huffman weights");
+            }
+            maxBits = highestBit(total) + 1;
+            final int rest = (1 << maxBits) - total;
+            if (maxBits > MAX_HUFFMAN_BITS || Integer.bitCount(rest) != 1) {
+                throw new IOException("Corrupted zstd Huffman weights");
+            }
+            weights[weightCount++] = highestBit(rest) + 1;
+
+            // lower weights (longer codes) take the lower table positions, symbols in order within a weight
+            final int tableSize = 1 << maxBits;
+            symbols = new byte[tableSize];
+            bitCounts = new byte[tableSize];
+            int position = 0;
+            for (int weight = 1; weight <= maxBits; ++weight) {
+                for (int symbol = 0; symbol < weightCount; ++symbol) {
+                    if (weights[symbol] != weight) {
+                        continue;
+                    }
+                    final int span = 1 << (weight - 1);
+                    Arrays.fill(symbols, position, position + span, (byte) symbol);
+                    Arrays.fill(bitCounts, position, position + span, (byte) (maxBits + 1 - weight));
+                    position += span;
+                }
+            }
+            return size;
+        }
+
+        void decode(final byte[] data, final int start, final int end, final byte[] target,
+                    final int offset, final int count) throws IOException {
+            final BackwardBitReader bits = new BackwardBitReader(data, start, end);
+            for (int i = 0; i < count; ++i) {
+                final int index = bits.peek(maxBits);
+                target[offset + i] = symbols[index];
+                bits.skip(bitCounts[index]);
+            }
+            if (!bits.isFinished()) {
+                throw new IOException("Corrupted zstd Huffman stream");
+            }
+        }
+    }
+}